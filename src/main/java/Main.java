@@ -9,6 +9,7 @@ import javafx.scene.control.Label;
 import javafx.scene.layout.GridPane;
 import javafx.fxml.FXMLLoader;
 
+import dao.Database;
 import model.Model;
 import controller.LoginController;
 
@@ -42,6 +43,11 @@ public class Main extends Application {
 		}
 	}
 
+	@Override
+	public void stop() {
+		Database.shutdown();
+	}
+
 	public static void main(String[] args) {
 		launch(args);
 	}
@@ -0,0 +1,95 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import dao.Database;
+import dao.Schema;
+
+/**
+ * Shared plumbing for the standalone benchmarks in this package.
+ * Every benchmark runs against a throw-away database file, never application.db.
+ */
+final class BenchSupport {
+    static final String[] DAYS = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+
+    @FunctionalInterface
+    interface Task { void run(int iteration) throws Exception; }
+
+    /** Latency summary in milliseconds. */
+    record Latency(int runs, double mean, double p50, double p99, double max) {
+        @Override public String toString() {
+            return String.format("n=%d mean %.3f ms  p50 %.3f ms  p99 %.3f ms  max %.3f ms", runs, mean, p50, p99, max);
+        }
+    }
+
+    private BenchSupport() {}
+
+    /** Runs task warmup times untimed, then runs times timed, one call at a time. */
+    static Latency measure(int warmup, int runs, Task task) throws Exception {
+        for (int i = 0; i < warmup; i++) task.run(i);
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long t0 = System.nanoTime();
+            task.run(warmup + i);
+            nanos[i] = System.nanoTime() - t0;
+        }
+        return summarize(nanos);
+    }
+
+    /** Latency of samples in ns, taken some other way (sorts the array). */
+    static Latency summarize(long[] nanos) {
+        if (nanos.length == 0) return new Latency(0, 0, 0, 0, 0);
+        Arrays.sort(nanos);
+        double sum = 0;
+        for (long n : nanos) sum += n;
+        return new Latency(nanos.length, sum / nanos.length / 1e6, pct(nanos, 0.50), pct(nanos, 0.99),
+                           nanos[nanos.length - 1] / 1e6);
+    }
+
+    private static double pct(long[] sorted, double p) {
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+    }
+
+    /** Creates an empty temp db, points the DAO layer at it and builds the schema. */
+    static File freshDatabase(String prefix) throws IOException, SQLException {
+        File f = File.createTempFile(prefix, ".db");
+        f.deleteOnExit();
+        new File(f.getPath() + "-wal").deleteOnExit();
+        new File(f.getPath() + "-shm").deleteOnExit();
+        Database.useFile(f.getPath());
+        Schema.setupAll();
+        return f;
+    }
+
+    /** Inserts n active projects with plenty of free slots. */
+    static void seedProjects(int n, int totalSlots) throws SQLException {
+        String sql = """
+            INSERT INTO projects(title, location, day, hourly_value, total_slots, registered_slots, active)
+            VALUES(?,?,?,?,?,0,1)
+        """;
+        try (Connection c = Database.getWriteConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            c.setAutoCommit(false);
+            for (int i = 0; i < n; i++) {
+                ps.setString(1, "Project " + i);
+                ps.setString(2, "Location " + (i % 50));
+                ps.setString(3, DAYS[i % DAYS.length]);
+                ps.setDouble(4, 20 + (i % 30));
+                ps.setInt(5, totalSlots);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            c.commit();
+        }
+    }
+
+    static double perSecond(long count, long nanos) {
+        return nanos == 0 ? 0 : count * 1e9 / nanos;
+    }
+}
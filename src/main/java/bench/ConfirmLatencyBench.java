@@ -0,0 +1,106 @@
+package bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import dao.Database;
+import dao.ProjectChangeBus;
+import dao.RegistrationDao;
+import dao.RegistrationDaoImpl;
+import dao.SlotInventory;
+import model.CartItem;
+
+/**
+ * Checkout latency per cart size (1, 5, 20, 100 items).
+ *
+ *   per-item: the original confirm loop, inlined (SELECT + prepare INSERT + prepare UPDATE per item)
+ *   batched:  RegistrationDaoImpl.confirm as shipped (one IN query, two batches, write queue)
+ *
+ * Usage: ConfirmLatencyBench [runs=200] [warmup=50]
+ */
+public class ConfirmLatencyBench {
+    private static final int[] CART_SIZES = { 1, 5, 20, 100 };
+
+    public static void main(String[] args) throws Exception {
+        int runs   = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        BenchSupport.freshDatabase("bench-confirm");
+        BenchSupport.seedProjects(CART_SIZES[CART_SIZES.length - 1], Integer.MAX_VALUE / 2);
+
+        SlotInventory inventory = new SlotInventory();
+        inventory.load();
+        RegistrationDao dao = new RegistrationDaoImpl(inventory, new ProjectChangeBus());
+
+        try {
+            for (int size : CART_SIZES) {
+                List<CartItem> cart = cart(size);
+                BenchSupport.Latency before = BenchSupport.measure(warmup, runs, i -> perItemConfirm("u" + i, cart));
+                BenchSupport.Latency after  = BenchSupport.measure(warmup, runs, i -> dao.confirm("u" + i, cart));
+                System.out.printf("cart %3d  per-item: %s%n", size, before);
+                System.out.printf("cart %3d  batched:  %s%n", size, after);
+            }
+        } finally {
+            Database.shutdown();
+        }
+    }
+
+    private static List<CartItem> cart(int size) {
+        List<CartItem> out = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            out.add(new CartItem(id, "Project " + (id - 1), "Location", "Mon", 25.0, 1, 2));
+        }
+        return out;
+    }
+
+    // the pre-batching confirm, kept here as the baseline
+    private static void perItemConfirm(String username, List<CartItem> items) throws SQLException {
+        try (Connection c = Database.getWriteConnection()) {
+            c.setAutoCommit(false);
+            try {
+                for (CartItem it : items) {
+                    try (PreparedStatement ps = c.prepareStatement(
+                            "SELECT total_slots - registered_slots FROM projects WHERE id=?")) {
+                        ps.setInt(1, it.projectId());
+                        try (ResultSet rs = ps.executeQuery()) {
+                            if (!rs.next() || rs.getInt(1) < it.slots()) throw new SQLException("Insufficient slots");
+                        }
+                    }
+                    try (PreparedStatement ins = c.prepareStatement("""
+                        INSERT INTO registrations(username, project_id, slots, hours, date_time, total_value)
+                        VALUES(?,?,?,?,?,?)
+                    """)) {
+                        ins.setString(1, username);
+                        ins.setInt(2, it.projectId());
+                        ins.setInt(3, it.slots());
+                        ins.setInt(4, it.hours());
+                        ins.setString(5, LocalDateTime.now().toString());
+                        ins.setDouble(6, it.hourlyValue() * it.hours() * it.slots());
+                        ins.executeUpdate();
+                    }
+                    try (PreparedStatement upd = c.prepareStatement(
+                            "UPDATE projects SET registered_slots = registered_slots + ? WHERE id=?")) {
+                        upd.setInt(1, it.slots());
+                        upd.setInt(2, it.projectId());
+                        upd.executeUpdate();
+                    }
+                }
+                try (PreparedStatement del = c.prepareStatement("DELETE FROM cart_items WHERE username=?")) {
+                    del.setString(1, username);
+                    del.executeUpdate();
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import dao.Database;
+import dao.ProjectChangeBus;
+import dao.ProjectDaoCsv;
+import dao.ProjectDaoDb;
+import dao.SlotInventory;
+
+/**
+ * Catalog file import from disk.
+ *
+ *   parse:  ProjectDaoCsv(Path, workers).forEachBatch with a no-op sink, for 1, 2, 4, ... workers
+ *   import: ProjectDaoDb.importProjects into an empty database (one transaction)
+ *
+ * Usage: CsvImportBench [rows=1000000] [maxWorkers=#cpus]
+ */
+public class CsvImportBench {
+
+    public static void main(String[] args) throws Exception {
+        int rows       = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int maxWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        Path csv = writeCatalog(rows);
+        try {
+            System.out.printf("file: %,d rows, %,d bytes%n", rows, Files.size(csv));
+            for (int w = 1; w <= maxWorkers; w *= 2) {
+                ProjectDaoCsv source = new ProjectDaoCsv(csv, w);
+                source.forEachBatch(5_000, b -> { });   // warm-up
+                long t0 = System.nanoTime();
+                long n = source.forEachBatch(5_000, b -> { });
+                long t = System.nanoTime() - t0;
+                System.out.printf("parse  %2d worker(s): %6d ms  %,.0f rows/s%n",
+                        w, t / 1_000_000, BenchSupport.perSecond(n, t));
+            }
+
+            BenchSupport.freshDatabase("bench-import");
+            ProjectDaoDb dao = new ProjectDaoDb(new SlotInventory(), new ProjectChangeBus());
+            long t0 = System.nanoTime();
+            long inserted = dao.importProjects(new ProjectDaoCsv(csv, maxWorkers), 5_000, r -> { });
+            long t = System.nanoTime() - t0;
+            System.out.printf("import %2d worker(s): %6d ms  %,.0f rows/s (%,d inserted)%n",
+                    maxWorkers, t / 1_000_000, BenchSupport.perSecond(inserted, t), inserted);
+        } finally {
+            Database.shutdown();
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // BOM, assignment-style header, a quoted cell with the delimiter in it every 100 rows
+    private static Path writeCatalog(int rows) throws Exception {
+        File f = File.createTempFile("bench-catalog", ".csv");
+        f.deleteOnExit();
+        try (BufferedWriter w = Files.newBufferedWriter(f.toPath(), StandardCharsets.UTF_8)) {
+            w.write("﻿PROJECT TITLE,LOCATION,DAY,HOURLY VALUE (AUD),#REGISTERED SLOTS,#TOTAL SLOTS\n");
+            for (int i = 0; i < rows; i++) {
+                String title = i % 100 == 0 ? "\"Project " + i + ", special\"" : "Project " + i;
+                w.write(title + ",Location " + (i % 50) + "," + BenchSupport.DAYS[i % 7] + ","
+                        + (20 + i % 30) + "," + (i % 10) + ",50\n");
+            }
+        }
+        return f.toPath();
+    }
+}
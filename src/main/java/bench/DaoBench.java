@@ -0,0 +1,184 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import dao.CartDaoImpl;
+import dao.Database;
+import dao.ProjectChangeBus;
+import dao.ProjectDaoCsv;
+import dao.ProjectDaoDb;
+import dao.RegistrationDaoImpl;
+import dao.SlotInventory;
+import dao.UserDaoImpl;
+import model.CartItem;
+
+/**
+ * The DAO hot paths against a SyntheticDb, one call at a time, written out as JSON so one
+ * run can be compared with the next.
+ *
+ *   ProjectDaoDb.loadAll                  the whole active catalog
+ *   ProjectDaoCsv.loadAll                 the same catalog parsed from a file
+ *   CartDaoImpl.listCart                  a random user's cart
+ *   CartDaoImpl.upsertCartItem            into a random user's cart (one commit each)
+ *   RegistrationDaoImpl.confirm           a 3-item checkout for a random user
+ *   RegistrationDaoImpl.listDetailsByUser a random user's whole history
+ *   UserDaoImpl.getUserByCredentials      the correct password for one of 32 users who have
+ *                                         logged in before (verification cache; the hash
+ *                                         itself is PasswordHashBench's job)
+ *
+ * With --baseline, each result is also shown as a change against that earlier output, and
+ * medians more than 10% slower are flagged (the median, because one fsync or GC pause
+ * moves the mean of a short run a long way).
+ *
+ * Usage: DaoBench [out=dao-bench.json] [users projects cartItems registrations]
+ *                 [--runs=200] [--warmup=50] [--baseline=previous.json]
+ */
+public class DaoBench {
+    private static final double REGRESSION = 1.10;
+    private static final int HOT_USERS = 32;
+
+    private record Result(String name, BenchSupport.Latency latency) { }
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<>();
+        int runs = 200, warmup = 50;
+        Path baseline = null;
+        for (String a : args) {
+            if (a.startsWith("--runs=")) runs = Integer.parseInt(a.substring(7));
+            else if (a.startsWith("--warmup=")) warmup = Integer.parseInt(a.substring(9));
+            else if (a.startsWith("--baseline=")) baseline = Path.of(a.substring(11));
+            else positional.add(a);
+        }
+        String[] pos = positional.toArray(new String[0]);
+        Path out = Path.of(pos.length > 0 ? pos[0] : "dao-bench.json");
+        SyntheticDb.Spec spec = SyntheticDb.Spec.parse(pos, 1);
+
+        File db = File.createTempFile("bench-dao", ".db");
+        db.delete();
+        db.deleteOnExit();
+        new File(db.getPath() + "-wal").deleteOnExit();
+        new File(db.getPath() + "-shm").deleteOnExit();
+        long t0 = System.nanoTime();
+        SyntheticDb.build(db, spec);
+        Path csv = SyntheticDb.writeCatalog(spec);
+        System.out.printf("synthetic db: %s in %d ms%n", spec, (System.nanoTime() - t0) / 1_000_000);
+
+        List<Result> results;
+        try {
+            results = run(spec, csv, runs, warmup);
+        } finally {
+            Database.shutdown();
+            Files.deleteIfExists(csv);
+        }
+
+        Map<String, Double> before = baseline == null ? Map.of() : readMedians(baseline);
+        for (Result r : results) {
+            Double was = before.get(r.name());
+            String change = "";
+            if (was != null && was > 0) {
+                double ratio = r.latency().p50() / was;
+                change = String.format("  %+.1f%%%s", (ratio - 1) * 100, ratio > REGRESSION ? "  REGRESSION" : "");
+            }
+            System.out.printf("%-38s %s%s%n", r.name(), r.latency(), change);
+        }
+        Files.writeString(out, json(spec, runs, warmup, results), StandardCharsets.UTF_8);
+        System.out.println("wrote " + out);
+    }
+
+    private static List<Result> run(SyntheticDb.Spec spec, Path csv, int runs, int warmup) throws Exception {
+        SlotInventory inventory = new SlotInventory();
+        inventory.load();
+        ProjectChangeBus changes = new ProjectChangeBus();
+        ProjectDaoDb projects = new ProjectDaoDb(inventory, changes);
+        ProjectDaoCsv catalogFile = new ProjectDaoCsv(csv);
+        CartDaoImpl carts = new CartDaoImpl();
+        RegistrationDaoImpl registrations = new RegistrationDaoImpl(inventory, changes);
+        UserDaoImpl users = new UserDaoImpl();
+        Random r = new Random(spec.seed());
+        int catalogRuns = Math.max(5, runs / 10);   // whole-catalog loads are the slow ones
+
+        List<Result> out = new ArrayList<>();
+        out.add(new Result("ProjectDaoDb.loadAll",
+                BenchSupport.measure(Math.max(2, warmup / 10), catalogRuns, i -> projects.loadAll())));
+        out.add(new Result("ProjectDaoCsv.loadAll",
+                BenchSupport.measure(Math.max(2, warmup / 10), catalogRuns, i -> catalogFile.loadAll())));
+        out.add(new Result("CartDaoImpl.listCart",
+                BenchSupport.measure(warmup, runs, i -> carts.listCart(user(r, spec)))));
+        out.add(new Result("CartDaoImpl.upsertCartItem",
+                BenchSupport.measure(warmup, runs, i -> carts.upsertCartItem(user(r, spec), project(r, spec), 1, 1))));
+        out.add(new Result("RegistrationDaoImpl.confirm",
+                BenchSupport.measure(warmup, runs, i -> registrations.confirm(user(r, spec), cart(r, spec)))));
+        out.add(new Result("RegistrationDaoImpl.listDetailsByUser",
+                BenchSupport.measure(warmup, runs, i -> registrations.listDetailsByUser(user(r, spec)))));
+        // warm-up logs every hot user in once, so the timed runs are the lookup plus a cache hit
+        int hot = Math.min(HOT_USERS, spec.users());
+        out.add(new Result("UserDaoImpl.getUserByCredentials",
+                BenchSupport.measure(Math.max(warmup, hot), runs,
+                        i -> users.getUserByCredentials(SyntheticDb.username(i % hot), SyntheticDb.PASSWORD))));
+        return out;
+    }
+
+    private static String user(Random r, SyntheticDb.Spec spec) {
+        return SyntheticDb.username(r.nextInt(spec.users()));
+    }
+
+    private static int project(Random r, SyntheticDb.Spec spec) {
+        return 1 + r.nextInt(spec.projects());
+    }
+
+    private static List<CartItem> cart(Random r, SyntheticDb.Spec spec) {
+        List<CartItem> items = new ArrayList<>();
+        int start = r.nextInt(spec.projects());
+        for (int k = 0; k < Math.min(3, spec.projects()); k++) {
+            int i = (start + k) % spec.projects();
+            items.add(new CartItem(i + 1, SyntheticDb.title(i), "Location " + i % 50,
+                                   BenchSupport.DAYS[i % 7], 20 + i % 30, 1, 1));
+        }
+        return items;
+    }
+
+    // --- JSON ---
+
+    private static String json(SyntheticDb.Spec spec, int runs, int warmup, List<Result> results) {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        sb.append("  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+        sb.append("  \"cpus\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        sb.append(String.format("  \"spec\": {\"users\": %d, \"projects\": %d, \"cartItems\": %d, \"registrations\": %d, \"seed\": %d},%n",
+                spec.users(), spec.projects(), spec.cartItems(), spec.registrations(), spec.seed()));
+        sb.append("  \"runs\": ").append(runs).append(", \"warmup\": ").append(warmup).append(",\n");
+        sb.append("  \"results\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            BenchSupport.Latency l = r.latency();
+            sb.append(String.format(Locale.ROOT,
+                    "    {\"name\": \"%s\", \"runs\": %d, \"meanMs\": %.4f, \"p50Ms\": %.4f, \"p99Ms\": %.4f, \"maxMs\": %.4f}%s%n",
+                    r.name(), l.runs(), l.mean(), l.p50(), l.p99(), l.max(), i < results.size() - 1 ? "," : ""));
+        }
+        return sb.append("  ]\n}\n").toString();
+    }
+
+    // reads back what json() wrote: one result object per line
+    private static Map<String, Double> readMedians(Path file) throws IOException {
+        Pattern p = Pattern.compile("\"name\": \"([^\"]+)\".*\"p50Ms\": ([0-9.]+)");
+        Map<String, Double> medians = new HashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            Matcher m = p.matcher(line);
+            if (m.find()) medians.put(m.group(1), Double.parseDouble(m.group(2)));
+        }
+        return medians;
+    }
+}
@@ -0,0 +1,196 @@
+package bench;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import dao.CartDao;
+import dao.CartDaoImpl;
+import dao.Database;
+import dao.ProjectDaoDb;
+import dao.RegistrationDao;
+import dao.RegistrationDaoImpl;
+
+/**
+ * Mixed read/write throughput, before and after WAL + writer/reader split.
+ *
+ *   before: a new DriverManager connection per call, rollback journal
+ *           (what the DAOs did originally)
+ *   after:  the DAO layer as shipped (pooled readers, one WAL writer)
+ *
+ * Readers browse the catalog and a cart; writers add to cart and confirm.
+ * Usage: MixedWorkloadBench [seconds=10] [readers=8] [writers=2] [projects=500]
+ */
+public class MixedWorkloadBench {
+
+    private interface Op { void run(int worker) throws Exception; }
+
+    private record Result(long reads, long writes, long errors, long nanos) { }
+
+    public static void main(String[] args) throws Exception {
+        int seconds  = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int readers  = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int writers  = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int projects = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+
+        System.out.printf("mixed workload: %ds, %d readers, %d writers, %d projects%n",
+                seconds, readers, writers, projects);
+
+        Result before = runBefore(seconds, readers, writers, projects);
+        report("before (per-call connection, rollback journal)", before);
+
+        Result after = runAfter(seconds, readers, writers, projects);
+        report("after  (WAL, 1 writer + reader pool)", after);
+
+        System.out.printf("speed-up: reads x%.2f, writes x%.2f%n",
+                (double) after.reads() / Math.max(1, before.reads()),
+                (double) after.writes() / Math.max(1, before.writes()));
+    }
+
+    // --- before: original connection handling, inlined ---
+
+    private static Result runBefore(int seconds, int readers, int writers, int projects) throws Exception {
+        File db = BenchSupport.freshDatabase("bench-before");
+        BenchSupport.seedProjects(projects, Integer.MAX_VALUE / 2);
+        Database.shutdown();
+
+        String url = "jdbc:sqlite:" + db.getPath();
+        try (Connection c = DriverManager.getConnection(url); Statement s = c.createStatement()) {
+            s.execute("PRAGMA journal_mode = DELETE");
+        }
+
+        Op read = w -> {
+            try (Connection c = DriverManager.getConnection(url)) {
+                if (w % 2 == 0) {
+                    drain(c, "SELECT id, title, location, day, hourly_value, total_slots, registered_slots "
+                           + "FROM projects WHERE active = 1 ORDER BY title, location, day", null);
+                } else {
+                    drain(c, "SELECT p.id, p.title, c.slots FROM cart_items c JOIN projects p ON p.id=c.project_id "
+                           + "WHERE c.username=?", user(w));
+                }
+            }
+        };
+        Op write = w -> {
+            int projectId = 1 + ThreadLocalRandom.current().nextInt(projects);
+            try (Connection c = DriverManager.getConnection(url);
+                 PreparedStatement ps = c.prepareStatement(
+                         "INSERT INTO cart_items(username, project_id, slots, hours, added_at) "
+                       + "VALUES(?,?,1,1,datetime('now')) ON CONFLICT(username, project_id) DO UPDATE SET slots=1")) {
+                ps.setString(1, user(w));
+                ps.setInt(2, projectId);
+                ps.executeUpdate();
+            }
+            try (Connection c = DriverManager.getConnection(url)) {
+                c.setAutoCommit(false);
+                try {
+                    drain(c, "SELECT total_slots - registered_slots, id FROM projects WHERE id=" + projectId, null);
+                    try (PreparedStatement ins = c.prepareStatement(
+                            "INSERT INTO registrations(username, project_id, slots, hours, date_time, total_value) "
+                          + "VALUES(?,?,1,1,?,20)")) {
+                        ins.setString(1, user(w));
+                        ins.setInt(2, projectId);
+                        ins.setString(3, LocalDateTime.now().toString());
+                        ins.executeUpdate();
+                    }
+                    try (PreparedStatement upd = c.prepareStatement(
+                            "UPDATE projects SET registered_slots = registered_slots + 1 WHERE id=?")) {
+                        upd.setInt(1, projectId);
+                        upd.executeUpdate();
+                    }
+                    try (PreparedStatement del = c.prepareStatement("DELETE FROM cart_items WHERE username=?")) {
+                        del.setString(1, user(w));
+                        del.executeUpdate();
+                    }
+                    c.commit();
+                } catch (SQLException e) {
+                    c.rollback();
+                    throw e;
+                }
+            }
+        };
+        return run(seconds, readers, writers, read, write);
+    }
+
+    // --- after: the DAO layer as it is now ---
+
+    private static Result runAfter(int seconds, int readers, int writers, int projects) throws Exception {
+        BenchSupport.freshDatabase("bench-after");
+        BenchSupport.seedProjects(projects, Integer.MAX_VALUE / 2);
+
+        ProjectDaoDb projectDao = new ProjectDaoDb();
+        CartDao cartDao = new CartDaoImpl();
+        RegistrationDao registrationDao = new RegistrationDaoImpl();
+
+        Op read = w -> {
+            if (w % 2 == 0) projectDao.loadAll();
+            else cartDao.listCart(user(w));
+        };
+        Op write = w -> {
+            int projectId = 1 + ThreadLocalRandom.current().nextInt(projects);
+            cartDao.upsertCartItem(user(w), projectId, 1, 1);
+            registrationDao.confirm(user(w), cartDao.listCart(user(w)));
+        };
+        try {
+            return run(seconds, readers, writers, read, write);
+        } finally {
+            Database.shutdown();
+        }
+    }
+
+    // --- harness ---
+
+    private static Result run(int seconds, int readers, int writers, Op read, Op write) throws InterruptedException {
+        LongAdder reads = new LongAdder(), writes = new LongAdder(), errors = new LongAdder();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readers + writers; i++) {
+            final int worker = i;
+            final boolean isWriter = i >= readers;
+            Thread t = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        if (isWriter) { write.run(worker); writes.increment(); }
+                        else          { read.run(worker);  reads.increment(); }
+                    } catch (Exception e) {
+                        errors.increment();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        for (Thread t : threads) t.join();
+        return new Result(reads.sum(), writes.sum(), errors.sum(), System.nanoTime() - start);
+    }
+
+    private static void drain(Connection c, String sql, String arg) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            if (arg != null) ps.setString(1, arg);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) rs.getString(2);
+            }
+        }
+    }
+
+    private static String user(int worker) {
+        return "bench" + worker;
+    }
+
+    private static void report(String label, Result r) {
+        System.out.printf("%-48s reads/s %9.1f  writes/s %8.1f  errors %d%n", label,
+                BenchSupport.perSecond(r.reads(), r.nanos()),
+                BenchSupport.perSecond(r.writes(), r.nanos()),
+                r.errors());
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.PasswordHasher;
+import util.Pbkdf2Scheme;
+
+/**
+ * Password verification cost, per PBKDF2 iteration count.
+ *
+ *   verify:  one PasswordHasher.verify at a time (latency of one login)
+ *   storm:   many virtual threads verifying at once for a few seconds; the hasher's
+ *            pool caps the cores used, so this is the most logins/s the app will do
+ *   cached:  the same password checked again (verification cache hit)
+ *
+ * Usage: PasswordHashBench [iterations,...=10000,100000,310000,600000] [seconds=3]
+ */
+public class PasswordHashBench {
+
+    public static void main(String[] args) throws Exception {
+        String[] costs = (args.length > 0 ? args[0] : "10000,100000,310000,600000").split(",");
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        for (String cost : costs) {
+            int iterations = Integer.parseInt(cost.trim());
+            PasswordHasher.use(new Pbkdf2Scheme(iterations));
+            String stored = PasswordHasher.hash("Correct horse 1!");
+
+            // wrong password: never cached, always the full derivation
+            BenchSupport.Latency verify = BenchSupport.measure(10, 20, i -> PasswordHasher.verify("Wrong horse 1!", stored));
+            double storm = storm(stored, seconds);
+            PasswordHasher.verify("Correct horse 1!", stored);
+            BenchSupport.Latency cached = BenchSupport.measure(1_000, 10_000, i -> PasswordHasher.verify("Correct horse 1!", stored));
+
+            System.out.printf("%,9d iterations  verify %s%n", iterations, verify);
+            System.out.printf("%,9d iterations  storm  %,.1f logins/s%n", iterations, storm);
+            System.out.printf("%,9d iterations  cached %s%n", iterations, cached);
+        }
+    }
+
+    // 64 virtual threads logging in with wrong passwords for about the given time; returns checks per second
+    private static double storm(String stored, int seconds) throws InterruptedException {
+        AtomicLong done = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < 64; t++) {
+                int id = t;
+                callers.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        PasswordHasher.verify("Wrong horse " + id, stored);
+                        done.incrementAndGet();
+                    }
+                });
+            }
+        }   // waits for the checks still queued at the deadline, which are counted too
+        return BenchSupport.perSecond(done.get(), System.nanoTime() - start);
+    }
+}
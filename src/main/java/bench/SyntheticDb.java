@@ -0,0 +1,208 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import dao.Database;
+import dao.Schema;
+import dao.UserDaoImpl;
+import util.PasswordHasher;
+
+/**
+ * A database shaped like a busy application.db, built from a Spec and a seed so two runs
+ * get the same rows.
+ * - users bench0..benchN-1, all with PASSWORD (hashed once, the current scheme)
+ * - projects spread over the days and 50 locations, with slots that never run out
+ * - per user: a cart of cartItems distinct projects and a history of registrations
+ *   going back about a year
+ *
+ * Usage: SyntheticDb file [users=1000] [projects=5000] [cartItems=5] [registrations=50]
+ */
+public final class SyntheticDb {
+    public static final String PASSWORD = "Bench1!pass";
+    static final int BIG = Integer.MAX_VALUE / 2;
+
+    /** How much to make. */
+    public record Spec(int users, int projects, int cartItems, int registrations, long seed) {
+        public static final Spec DEFAULT = new Spec(1_000, 5_000, 5, 50, 42);
+
+        public Spec {
+            if (users < 1 || projects < 1 || cartItems < 0 || registrations < 0 || cartItems > projects) {
+                throw new IllegalArgumentException("bad spec: " + users + "/" + projects + "/" + cartItems + "/" + registrations);
+            }
+        }
+
+        public static Spec parse(String[] args, int from) {
+            Spec d = DEFAULT;
+            return new Spec(
+                args.length > from     ? Integer.parseInt(args[from])     : d.users(),
+                args.length > from + 1 ? Integer.parseInt(args[from + 1]) : d.projects(),
+                args.length > from + 2 ? Integer.parseInt(args[from + 2]) : d.cartItems(),
+                args.length > from + 3 ? Integer.parseInt(args[from + 3]) : d.registrations(),
+                d.seed());
+        }
+    }
+
+    private SyntheticDb() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: SyntheticDb file [users] [projects] [cartItems] [registrations]");
+            System.exit(2);
+        }
+        Spec spec = Spec.parse(args, 1);
+        long t0 = System.nanoTime();
+        build(new File(args[0]), spec);
+        Database.shutdown();
+        System.out.printf("%s: %s in %d ms%n", args[0], spec, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    /** Points the DAO layer at file (which must not exist yet) and fills it. */
+    public static void build(File file, Spec spec) throws SQLException {
+        Database.useFile(file.getPath());
+        new UserDaoImpl().setup();
+        Schema.setupAll();
+        Random r = new Random(spec.seed());
+        try (Connection c = Database.getWriteConnection()) {
+            c.setAutoCommit(false);
+            try {
+                users(c, spec);
+                projects(c, spec);
+                carts(c, spec, r);
+                registrations(c, spec, r);
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
+    public static String username(int i) {
+        return "bench" + i;
+    }
+
+    public static String title(int i) {
+        return "Project " + i;
+    }
+
+    /** The same projects as a catalog file, for ProjectDaoCsv. */
+    public static Path writeCatalog(Spec spec) throws IOException {
+        File f = File.createTempFile("bench-catalog", ".csv");
+        f.deleteOnExit();
+        try (BufferedWriter w = Files.newBufferedWriter(f.toPath(), StandardCharsets.UTF_8)) {
+            w.write("PROJECT TITLE,LOCATION,DAY,HOURLY VALUE (AUD),#REGISTERED SLOTS,#TOTAL SLOTS\n");
+            for (int i = 0; i < spec.projects(); i++) {
+                w.write(title(i) + "," + location(i) + "," + BenchSupport.DAYS[i % 7] + ","
+                        + hourly(i) + ",0," + BIG + "\n");
+            }
+        }
+        return f.toPath();
+    }
+
+    // --- tables ---
+
+    private static void users(Connection c, Spec spec) throws SQLException {
+        String hash = PasswordHasher.hash(PASSWORD);   // one derivation, shared by every row
+        String now = Instant.now().toString();
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO users(username, full_name, email, password_hash, created_at) VALUES (?,?,?,?,?)")) {
+            for (int i = 0; i < spec.users(); i++) {
+                ps.setString(1, username(i));
+                ps.setString(2, "Bench User " + i);
+                ps.setString(3, username(i) + "@example.com");
+                ps.setString(4, hash);
+                ps.setString(5, now);
+                ps.addBatch();
+                if (i % 5_000 == 4_999) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void projects(Connection c, Spec spec) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("""
+                INSERT INTO projects(title, location, day, hourly_value, total_slots, registered_slots, active)
+                VALUES(?,?,?,?,?,0,1)
+            """)) {
+            for (int i = 0; i < spec.projects(); i++) {
+                ps.setString(1, title(i));
+                ps.setString(2, location(i));
+                ps.setString(3, BenchSupport.DAYS[i % 7]);
+                ps.setDouble(4, hourly(i));
+                ps.setInt(5, BIG);
+                ps.addBatch();
+                if (i % 5_000 == 4_999) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void carts(Connection c, Spec spec, Random r) throws SQLException {
+        if (spec.cartItems() == 0) return;
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO cart_items(username, project_id, slots, hours, added_at) VALUES(?,?,?,?,datetime('now'))")) {
+            for (int u = 0; u < spec.users(); u++) {
+                // a run of distinct projects from a random start keeps (username, project_id) unique
+                int start = r.nextInt(spec.projects());
+                for (int k = 0; k < spec.cartItems(); k++) {
+                    ps.setString(1, username(u));
+                    ps.setInt(2, 1 + (start + k) % spec.projects());
+                    ps.setInt(3, 1 + r.nextInt(3));
+                    ps.setInt(4, 1 + r.nextInt(3));
+                    ps.addBatch();
+                }
+                if (u % 1_000 == 999) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void registrations(Connection c, Spec spec, Random r) throws SQLException {
+        if (spec.registrations() == 0) return;
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        try (PreparedStatement ps = c.prepareStatement("""
+                INSERT INTO registrations(username, project_id, slots, hours, date_time, date_epoch, total_value)
+                VALUES(?,?,?,?,?,?,?)
+            """)) {
+            for (int u = 0; u < spec.users(); u++) {
+                for (int k = 0; k < spec.registrations(); k++) {
+                    int project = r.nextInt(spec.projects());
+                    int slots = 1 + r.nextInt(3), hours = 1 + r.nextInt(3);
+                    LocalDateTime at = now.minusMinutes(r.nextInt(365 * 24 * 60));
+                    ps.setString(1, username(u));
+                    ps.setInt(2, project + 1);
+                    ps.setInt(3, slots);
+                    ps.setInt(4, hours);
+                    ps.setString(5, at.toString());
+                    ps.setLong(6, at.toInstant(ZoneOffset.UTC).toEpochMilli());
+                    ps.setDouble(7, hourly(project) * slots * hours);
+                    ps.addBatch();
+                }
+                if (u % 200 == 199) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static String location(int i) {
+        return "Location " + i % 50;
+    }
+
+    private static double hourly(int i) {
+        return 20 + i % 30;
+    }
+}
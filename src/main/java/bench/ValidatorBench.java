@@ -0,0 +1,86 @@
+package bench;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import util.ConfirmValidator;
+import util.PasswordPolicy;
+
+/**
+ * The util validators against the regexes they replaced, over inputs shaped like real use.
+ *
+ *   passwords: signup attempts, about 60% valid ("Summer2025!"), the rest missing a special,
+ *              too short, all lower case, plus a few long passphrases
+ *   codes:     confirmation codes, 90% six digits, the rest one short or with a letter
+ *
+ *   matches:   String.matches, as the validators were (compiles the pattern every call)
+ *   pattern:   the same regex compiled once
+ *   scanner:   PasswordPolicy.valid / ConfirmValidator.isSixDigit as shipped
+ *
+ * Each timed run checks the whole input set once; ns/check is the mean run over its size.
+ * Usage: ValidatorBench [inputs=10000] [runs=200]
+ */
+public class ValidatorBench {
+    private static final String PASSWORD_REGEX = "^(?=.*[A-Z])(?=.*[a-z])(?=.*\\d)(?=.*[^A-Za-z0-9]).{8,}$";
+    private static final String CODE_REGEX = "^\\d{6}$";
+    private static final String[] WORDS = { "summer", "river", "garden", "volunteer", "melbourne", "coffee", "tiger" };
+    private static final String SPECIALS = "!@#$%&*?";
+
+    private static int sink;   // keeps the JIT from dropping the checks
+
+    public static void main(String[] args) throws Exception {
+        int inputs = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int runs   = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Random r = new Random(42);
+        String[] passwords = new String[inputs];
+        String[] codes = new String[inputs];
+        for (int i = 0; i < inputs; i++) {
+            passwords[i] = password(r);
+            codes[i] = code(r);
+        }
+
+        Pattern password = Pattern.compile(PASSWORD_REGEX);
+        Pattern code = Pattern.compile(CODE_REGEX);
+        report("password", "matches", inputs, runs, passwords, s -> s.matches(PASSWORD_REGEX));
+        report("password", "pattern", inputs, runs, passwords, s -> password.matcher(s).matches());
+        report("password", "scanner", inputs, runs, passwords, PasswordPolicy::valid);
+        report("code", "matches", inputs, runs, codes, s -> s.matches(CODE_REGEX));
+        report("code", "pattern", inputs, runs, codes, s -> code.matcher(s).matches());
+        report("code", "scanner", inputs, runs, codes, ConfirmValidator::isSixDigit);
+        if (sink == 42) System.out.println();
+    }
+
+    private interface Check { boolean test(String s); }
+
+    private static void report(String what, String how, int inputs, int runs, String[] data, Check check) throws Exception {
+        BenchSupport.Latency l = BenchSupport.measure(runs / 2, runs, i -> {
+            int valid = 0;
+            for (String s : data) if (check.test(s)) valid++;
+            sink += valid;
+        });
+        System.out.printf("%-8s %-7s %8.1f ns/check  (p99 run %.3f ms)%n", what, how, l.mean() * 1e6 / inputs, l.p99());
+    }
+
+    private static String password(Random r) {
+        String word = WORDS[r.nextInt(WORDS.length)];
+        String capital = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+        int year = 1970 + r.nextInt(60);
+        char special = SPECIALS.charAt(r.nextInt(SPECIALS.length()));
+        int kind = r.nextInt(100);
+        if (kind < 60) return capital + year + special;
+        if (kind < 75) return capital + year;
+        if (kind < 85) return capital.substring(0, 3) + (year % 10) + special;
+        if (kind < 95) return word + year;
+        StringBuilder phrase = new StringBuilder(capital);
+        for (int w = 0; w < 4 + r.nextInt(4); w++) phrase.append(' ').append(WORDS[r.nextInt(WORDS.length)]);
+        return phrase.append(' ').append(year).toString();
+    }
+
+    private static String code(Random r) {
+        String digits = String.format("%06d", r.nextInt(1_000_000));
+        int kind = r.nextInt(100);
+        if (kind < 90) return digits;
+        if (kind < 95) return digits.substring(1);
+        return digits.substring(0, 2) + 'o' + digits.substring(3);
+    }
+}
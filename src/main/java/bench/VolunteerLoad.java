@@ -0,0 +1,372 @@
+package bench;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import dao.Database;
+import dao.PoolStats;
+import dao.ProjectDao;
+import dao.ProjectQuery;
+import dao.RegistrationDao;
+import dao.Schema;
+import dao.TxExecutor;
+import dao.UserDao;
+import model.CartItem;
+import model.Model;
+import model.Project;
+import model.User;
+import util.PasswordHasher;
+import util.Pbkdf2Scheme;
+import util.WeekRule;
+
+/**
+ * A sign-up rush without the UI: N volunteers on virtual threads drive Model and the DAO
+ * interfaces the way the controllers do.
+ *
+ *   each volunteer signs up (a fresh load-* user), logs in, then until the time is up picks
+ *   an operation from the mix, runs it and thinks for a random time (exponential, mean
+ *   --think) before the next
+ *
+ *   login    getUserByCredentials + a new session
+ *   browse   one catalog page: a random bookable day, sometimes a text search
+ *   cart     a bookable project from the last page into the cart (1-3 slots)
+ *   confirm  check out the cart; a sold-out project empties it, as a volunteer would
+ *   history  the newest page of the volunteer's registrations
+ *
+ * Reports throughput, p50/p99 per operation, the DAO layer's busy/locked retries, writer pool
+ * waits and the DAO metrics. Afterwards every project is checked for oversell: more slots
+ * registered than it has, or a registered count that moved by something other than the
+ * slots of the registrations this run added. Exits 1 if any were found.
+ *
+ * Runs against a throw-away database of --projects projects with 10-30 slots each (so
+ * popular days sell out) unless --db names a file, e.g. a local application.db. The busy
+ * counters only move when another process shares that file.
+ * --hash-iterations makes sign-up cheaper for big runs; those users keep that cost.
+ *
+ * Usage: VolunteerLoad [--volunteers=100] [--seconds=30] [--think=200]
+ *                      [--mix=login:5,browse:40,cart:25,confirm:10,history:20]
+ *                      [--projects=500 | --db=application.db] [--hash-iterations=N]
+ */
+public class VolunteerLoad {
+    private enum Op { SIGNUP, LOGIN, BROWSE, CART, CONFIRM, HISTORY }
+
+    private static final String PASSWORD = "Volunteer1!";
+    private static final String[] SEARCHES = { "park", "beach", "library", "garden", "clean" };
+
+    // latencies and counts for one operation, filled in by every volunteer
+    private static final class Recorder {
+        private long[] nanos = new long[1024];
+        private int n;
+        final LongAdder errors = new LongAdder();
+
+        synchronized void add(long t) {
+            if (n == nanos.length) nanos = Arrays.copyOf(nanos, n * 2);
+            nanos[n++] = t;
+        }
+
+        synchronized long[] samples() {
+            return Arrays.copyOf(nanos, n);
+        }
+    }
+
+    private final Model model;
+    private final int[] weights = new int[Op.values().length];
+    private final long thinkMillis;
+    private final Map<Op, Recorder> recorders = new EnumMap<>(Op.class);
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder soldOut = new LongAdder();
+
+    private VolunteerLoad(Model model, String mix, long thinkMillis) {
+        this.model = model;
+        this.thinkMillis = thinkMillis;
+        for (Op op : Op.values()) recorders.put(op, new Recorder());
+        for (String part : mix.split(",")) {
+            String[] kv = part.split(":");
+            weights[Op.valueOf(kv[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(kv[1].trim());
+        }
+        weights[Op.SIGNUP.ordinal()] = 0;   // once per volunteer, never from the mix
+    }
+
+    public static void main(String[] args) throws Exception {
+        int volunteers = 100, seconds = 30, projects = 500;
+        long think = 200;
+        String mix = "login:5,browse:40,cart:25,confirm:10,history:20";
+        String db = null;
+        for (String a : args) {
+            String v = a.substring(a.indexOf('=') + 1);
+            if (a.startsWith("--volunteers=")) volunteers = Integer.parseInt(v);
+            else if (a.startsWith("--seconds=")) seconds = Integer.parseInt(v);
+            else if (a.startsWith("--think=")) think = Long.parseLong(v);
+            else if (a.startsWith("--mix=")) mix = v;
+            else if (a.startsWith("--projects=")) projects = Integer.parseInt(v);
+            else if (a.startsWith("--db=")) db = v;
+            else if (a.startsWith("--hash-iterations=")) PasswordHasher.use(new Pbkdf2Scheme(Integer.parseInt(v)));
+            else throw new IllegalArgumentException("unknown option " + a);
+        }
+        if (db == null) {
+            File f = File.createTempFile("load", ".db");
+            f.delete();
+            f.deleteOnExit();
+            new File(f.getPath() + "-wal").deleteOnExit();
+            new File(f.getPath() + "-shm").deleteOnExit();
+            Database.useFile(f.getPath());
+            seedCatalog(projects);
+        } else {
+            Database.useFile(db);
+        }
+        Model model = new Model();
+        model.setup();   // schema, and the shipped catalog if the file is empty
+
+        Map<Integer, int[]> before = slots();
+        long lastRegistration = lastRegistration();
+        System.out.printf("%d volunteers, %d s, think %d ms, mix %s, db %s%n",
+                volunteers, seconds, think, mix, Database.dbFilePath());
+
+        VolunteerLoad load = new VolunteerLoad(model, mix, think);
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < volunteers; i++) {
+                String username = "load-" + run + "-" + i;
+                pool.execute(() -> load.volunteer(username, deadline));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int oversold = oversold(before, lastRegistration);
+        load.report(elapsed, oversold);
+        Database.shutdown();
+        if (oversold > 0) System.exit(1);
+    }
+
+    // --- one volunteer ---
+
+    private void volunteer(String username, long deadline) {
+        Random r = ThreadLocalRandom.current();
+        List<Project> page = List.of();
+        try {
+            UserDao.Signup s = timed(Op.SIGNUP, () ->
+                    model.getUserDao().register("Load Volunteer", username, username + "@example.com", PASSWORD));
+            if (s.outcome() != UserDao.Outcome.CREATED) return;
+            login(username);
+        } catch (Exception e) {
+            return;   // counted as an error by timed()
+        }
+        while (System.nanoTime() < deadline) {
+            Op op = pick(r);
+            try {
+                switch (op) {
+                    case LOGIN -> login(username);
+                    case BROWSE -> page = browse(r);
+                    case CART -> {
+                        if (page.isEmpty()) page = browse(r);
+                        addToCart(username, page, r);
+                    }
+                    case CONFIRM -> confirm(username);
+                    case HISTORY -> timed(Op.HISTORY, () ->
+                            model.getRegistrationDao().pageDetailsByUser(username, RegistrationDao.Cursor.NEWEST, 50));
+                    default -> { }
+                }
+            } catch (Exception e) {
+                // counted by timed(); the volunteer carries on
+            }
+            think(r);
+        }
+    }
+
+    private void login(String username) throws Exception {
+        timed(Op.LOGIN, () -> {
+            User u = model.getUserDao().getUserByCredentials(username, PASSWORD);
+            if (u == null) throw new SQLException("login failed for " + username);
+            return model.getSessions().open(u, false);
+        });
+    }
+
+    private List<Project> browse(Random r) throws Exception {
+        int allowed = WeekRule.local().allowedMask();
+        int day;
+        do { day = r.nextInt(7); } while ((allowed & (1 << day)) == 0);
+        ProjectQuery q = ProjectQuery.ALL.withDay(BenchSupport.DAYS[day]).withMinAvailable(1);
+        if (r.nextInt(4) == 0) q = q.withText(SEARCHES[r.nextInt(SEARCHES.length)]);
+        ProjectQuery query = q;
+        ProjectDao.Page p = timed(Op.BROWSE, () -> model.searchProjects(query));
+        return p.rows();
+    }
+
+    private void addToCart(String username, List<Project> page, Random r) throws Exception {
+        if (page.isEmpty()) return;
+        Project p = page.get(r.nextInt(page.size()));
+        if (p.getAvailableSlots() < 1 || !WeekRule.local().allows(p.getDay())) return;
+        int slots = 1 + r.nextInt(Math.min(3, p.getAvailableSlots()));
+        timed(Op.CART, () -> {
+            model.getCartDao().upsertCartItem(username, p.getId(), slots, 1 + r.nextInt(3));
+            return null;
+        });
+    }
+
+    private void confirm(String username) throws Exception {
+        try {
+            timed(Op.CONFIRM, () -> {
+                List<CartItem> items = model.getCartDao().listCart(username);
+                if (items.isEmpty()) return null;
+                model.getRegistrationDao().confirm(username, items);
+                confirmed.increment();
+                return null;
+            });
+        } catch (SQLException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith("Insufficient slots")) throw e;
+            soldOut.increment();
+            model.getCartDao().clearCart(username);
+        }
+    }
+
+    private interface Work<T> { T call() throws Exception; }
+
+    // runs work and records the whole time taken; contention is retried inside the DAOs
+    private <T> T timed(Op op, Work<T> work) throws Exception {
+        Recorder rec = recorders.get(op);
+        long t0 = System.nanoTime();
+        try {
+            T result = work.call();
+            rec.add(System.nanoTime() - t0);
+            return result;
+        } catch (SQLException e) {
+            boolean expected = op == Op.CONFIRM && e.getMessage() != null
+                               && e.getMessage().startsWith("Insufficient slots");
+            if (expected) rec.add(System.nanoTime() - t0);
+            else rec.errors.increment();
+            throw e;
+        } catch (Exception e) {
+            rec.errors.increment();
+            throw e;
+        }
+    }
+
+    private Op pick(Random r) {
+        int total = 0;
+        for (int w : weights) total += w;
+        int x = r.nextInt(Math.max(1, total));
+        for (Op op : Op.values()) {
+            x -= weights[op.ordinal()];
+            if (x < 0) return op;
+        }
+        return Op.BROWSE;
+    }
+
+    private void think(Random r) {
+        if (thinkMillis <= 0) return;
+        long ms = (long) (-thinkMillis * Math.log(1 - r.nextDouble()));
+        try {
+            Thread.sleep(Math.min(ms, thinkMillis * 10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- report ---
+
+    private void report(long elapsedNanos, int oversold) {
+        long ops = 0;
+        System.out.printf("%n%-8s %9s %7s  %s%n", "op", "count", "errors", "latency");
+        for (Op op : Op.values()) {
+            Recorder rec = recorders.get(op);
+            BenchSupport.Latency l = BenchSupport.summarize(rec.samples());
+            ops += l.runs();
+            System.out.printf("%-8s %9d %7d  %s%n", op.name().toLowerCase(), l.runs(), rec.errors.sum(), l);
+        }
+        System.out.printf("%nthroughput %,.1f ops/s over %.1f s%n", BenchSupport.perSecond(ops, elapsedNanos), elapsedNanos / 1e9);
+        System.out.printf("checkouts  %d confirmed, %d sold out%n", confirmed.sum(), soldOut.sum());
+        TxExecutor.Stats tx = Database.transactions().stats();
+        System.out.printf("writes: %d attempts, %d busy, %d locked, %d retries, %d gave up, %d constraint failures%n",
+                tx.attempts(), tx.busy(), tx.locked(), tx.retries(), tx.gaveUp(), tx.constraint());
+        PoolStats w = Database.writerStats();
+        System.out.printf("writer pool: %d borrows, avg wait %.2f ms, max wait %.2f ms, %d timeouts%n",
+                w.borrows(), w.avgWaitMillis(), w.maxWaitMillis(), w.timeouts());
+        System.out.printf("oversell violations %d%n", oversold);
+
+        System.out.printf("%nslowest DAO methods (total time)%n");
+        model.getMetrics().snapshot().stream().limit(8).forEach(m ->
+                System.out.printf("  %-40s %7d calls  mean %.3f ms  p99 %.3f ms%n", m.method(), m.calls(), m.meanMs(), m.p99Ms()));
+    }
+
+    private static void seedCatalog(int n) throws SQLException {
+        Schema.setupAll();
+        Random r = new Random(42);
+        try (Connection c = Database.getWriteConnection();
+             PreparedStatement ps = c.prepareStatement("""
+                 INSERT INTO projects(title, location, day, hourly_value, total_slots, registered_slots, active)
+                 VALUES(?,?,?,?,?,0,1)
+             """)) {
+            c.setAutoCommit(false);
+            for (int i = 0; i < n; i++) {
+                ps.setString(1, SEARCHES[i % SEARCHES.length] + " project " + i);
+                ps.setString(2, "Location " + i % 50);
+                ps.setString(3, BenchSupport.DAYS[i % 7]);
+                ps.setDouble(4, 20 + i % 30);
+                ps.setInt(5, 10 + r.nextInt(21));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            c.commit();
+            c.setAutoCommit(true);
+        }
+    }
+
+    // --- oversell check ---
+
+    // project id -> { total_slots, registered_slots }
+    private static Map<Integer, int[]> slots() throws SQLException {
+        Map<Integer, int[]> out = new HashMap<>();
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT id, total_slots, registered_slots FROM projects");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.put(rs.getInt(1), new int[] { rs.getInt(2), rs.getInt(3) });
+        }
+        return out;
+    }
+
+    private static long lastRegistration() throws SQLException {
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT COALESCE(MAX(reg_id), 0) FROM registrations");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static int oversold(Map<Integer, int[]> before, long lastRegistration) throws SQLException {
+        Map<Integer, Integer> added = new HashMap<>();
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement(
+                 "SELECT project_id, SUM(slots) FROM registrations WHERE reg_id > ? GROUP BY project_id")) {
+            ps.setLong(1, lastRegistration);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) added.put(rs.getInt(1), rs.getInt(2));
+            }
+        }
+        List<String> problems = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> e : slots().entrySet()) {
+            int id = e.getKey(), total = e.getValue()[0], registered = e.getValue()[1];
+            int[] was = before.get(id);
+            int expected = (was == null ? 0 : was[1]) + added.getOrDefault(id, 0);
+            if (registered > total) problems.add("project " + id + ": " + registered + " registered of " + total);
+            else if (registered != expected) problems.add("project " + id + ": registered " + registered + ", expected " + expected);
+        }
+        problems.stream().limit(20).forEach(p -> System.out.println("OVERSELL " + p));
+        return problems.size();
+    }
+}
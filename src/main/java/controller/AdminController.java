@@ -6,24 +6,31 @@ import javafx.fxml.FXML;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import dao.ProjectDaoCsv;
+import dao.ProjectStore;
 import model.Model;
-import dao.Database;
+import model.Project;
 
-import java.sql.*;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
 public class AdminController {
+    private static final int UPSERT_BATCH = 5_000;
+
     private final Stage stage = new Stage();
+    private final Background bg = new Background(stage);
     private final Stage parent;
     private final Model model;
 
     @FXML private TableView<Row> tbl;
     @FXML private TableColumn<Row, Number> colId, colHourly, colTotal, colReg, colAvail;
     @FXML private TableColumn<Row, String> colTitle, colLocation, colDay, colActive;
-    @FXML private Button btnAdd, btnToggle, btnRefresh, btnClose;
+    @FXML private Button btnAdd, btnImport, btnToggle, btnRefresh, btnMetrics, btnClose;
     @FXML private Label status;
+    @FXML private ProgressIndicator busy;
 
     public AdminController(Stage parent, Model model) {
         this.parent = parent;
@@ -50,89 +57,138 @@ public class AdminController {
         });
 
         btnAdd.setOnAction(e -> addUpsert());
+        btnImport.setOnAction(e -> upsertFromFile());
         btnToggle.setOnAction(e -> toggle());
         btnRefresh.setOnAction(e -> refresh());
+        btnMetrics.setOnAction(e -> openMetrics());
         btnClose.setOnAction(e -> { stage.close(); if (parent != null) parent.show(); });
+        bg.disableWhileBusy(btnAdd, btnImport, btnToggle, btnRefresh);
+        bg.showWhileBusy(busy);
 
         refresh();
     }
 
+    // asks the DB too: after a conflict the row may have been changed by another copy of the app,
+    // and a version read only from the cache would conflict again on every retry
     private void refresh() {
-        String sql = """
-            SELECT id, title, location, day, hourly_value, total_slots, registered_slots, active
-            FROM projects
-            ORDER BY active DESC, title, location, day
-        """;
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-
+        bg.run(() -> {
             List<Row> rows = new ArrayList<>();
-            while (rs.next()) {
+            for (Project p : model.getCatalog().all(true)) {
                 Row r = new Row();
-                r.id.set(rs.getInt("id"));
-                r.title.set(rs.getString("title"));
-                r.location.set(rs.getString("location"));
-                r.day.set(rs.getString("day"));
-                r.hourly.set(rs.getDouble("hourly_value"));
-                r.total.set(rs.getInt("total_slots"));
-                r.registered.set(rs.getInt("registered_slots"));
-                r.available.set(Math.max(0, r.total.get() - r.registered.get()));
-                r.active.set(rs.getInt("active") == 1 ? "Yes" : "No");
+                r.id.set(p.getId());
+                r.title.set(p.getTitle());
+                r.location.set(p.getLocation());
+                r.day.set(p.getDay());
+                r.hourly.set(p.getHourlyValue());
+                r.total.set(p.getTotalSlots());
+                r.registered.set(p.getRegisteredSlots());
+                r.available.set(p.getAvailableSlots());
+                r.active.set(p.isActive() ? "Yes" : "No");
+                r.version.set(p.getVersion());
                 rows.add(r);
             }
+            return rows;
+        }, rows -> {
             tbl.setItems(FXCollections.observableArrayList(rows));
             status.setText("Projects: " + rows.size());
-        } catch (Exception e) {
-            status.setText("Load failed: " + e.getMessage());
-        }
+        }, e -> status.setText("Load failed: " + e.getMessage()));
     }
 
     private void addUpsert() {
         var d = new TextInputDialog("Title,Location,Day(Mon..Sun),Hourly,Total,Registered,Active(1/0)");
         d.setHeaderText("Enter: title,location,day,hourly,total,registered,active");
         d.showAndWait().ifPresent(s -> {
-            try {
-                var p = s.split(",", -1);
-                String sql = """
-                    INSERT INTO projects(title, location, day, hourly_value, total_slots, registered_slots, active)
-                    VALUES(?,?,?,?,?,?,?)
-                    ON CONFLICT(title, location, day)
-                    DO UPDATE SET hourly_value=excluded.hourly_value,
-                                  total_slots=excluded.total_slots,
-                                  registered_slots=excluded.registered_slots,
-                                  active=excluded.active
-                """;
-                try (Connection c = Database.getConnection();
-                     PreparedStatement ps = c.prepareStatement(sql)) {
-                    ps.setString(1, p[0].trim());
-                    ps.setString(2, p[1].trim());
-                    ps.setString(3, p[2].trim());
-                    ps.setDouble(4, Double.parseDouble(p[3].trim()));
-                    ps.setInt(5, Integer.parseInt(p[4].trim()));
-                    ps.setInt(6, Integer.parseInt(p[5].trim()));
-                    ps.setInt(7, "1".equals(p[6].trim()) ? 1 : 0);
-                    ps.executeUpdate();
+            var p = s.split(",", -1);
+            // the edit applies to the row as listed; if it has changed since, it is refused
+            long expected = p.length < 3 ? ProjectStore.NEW : versionShown(p[0].trim(), p[1].trim(), p[2].trim());
+            bg.run(() -> {
+                // goes through the DAO so the in-memory slot inventory follows the edit
+                return model.getProjectDao().upsertProject(
+                    p[0].trim(), p[1].trim(), p[2].trim(),
+                    Double.parseDouble(p[3].trim()),
+                    Integer.parseInt(p[4].trim()),
+                    Integer.parseInt(p[5].trim()),
+                    "1".equals(p[6].trim()),
+                    expected);
+            }, edit -> {
+                if (edit.conflict()) {
+                    new Alert(Alert.AlertType.WARNING, "This project was changed (by a checkout or another admin) "
+                            + "after the list was loaded, so the edit was not saved. Check the refreshed numbers "
+                            + "and enter it again.").showAndWait();
                 }
                 refresh();
-            } catch (Exception ex) {
-                new Alert(Alert.AlertType.ERROR, "Upsert failed: " + ex.getMessage()).showAndWait();
-            }
+            }, ex -> new Alert(Alert.AlertType.ERROR, "Upsert failed: " + ex.getMessage()).showAndWait());
         });
     }
 
+    // version of the listed project with this key, or NEW if the list has none
+    private long versionShown(String title, String location, String day) {
+        for (Row r : tbl.getItems()) {
+            if (r.title.get().equals(title) && r.location.get().equals(location) && r.day.get().equals(day)) {
+                return r.version.get();
+            }
+        }
+        return ProjectStore.NEW;
+    }
+
+    private void upsertFromFile() {
+        var fc = new FileChooser();
+        fc.setTitle("Upsert projects from file");
+        fc.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV / TSV", "*.csv", "*.tsv", "*.txt"),
+            new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = fc.showOpenDialog(stage);
+        if (file == null) return;
+
+        // one worker keeps rows in file order, so "row N" in the report is the N-th record
+        var source = new ProjectDaoCsv(file.toPath(), 1);
+        bg.run(() -> model.getProjectDao().upsertProjects(source, UPSERT_BATCH,
+                    Background.progress(n -> status.setText("Upserting… " + n + " rows"))),
+               report -> {
+                   status.setText(String.format("Inserted %d, updated %d, rejected %d, conflicts %d",
+                           report.inserted(), report.updated(), report.rejected(), report.conflicts()));
+                   long skipped = report.rejected() + report.conflicts();
+                   if (skipped > 0) {
+                       var a = new Alert(Alert.AlertType.WARNING);
+                       a.setHeaderText(report.rejected() + " row(s) rejected, " + report.conflicts() + " left unchanged");
+                       String more = skipped > report.problems().size()
+                               ? "\n… and " + (skipped - report.problems().size()) + " more" : "";
+                       a.setContentText(String.join("\n", report.problems()) + more);
+                       a.show();
+                   }
+                   refresh();
+               },
+               ex -> new Alert(Alert.AlertType.ERROR, "Upsert failed: " + ex.getMessage()).showAndWait());
+    }
+
     private void toggle() {
         Row r = tbl.getSelectionModel().getSelectedItem();
         if (r == null) { status.setText("Select a project."); return; }
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement("UPDATE projects SET active=? WHERE id=?")) {
-            boolean to = !"Yes".equals(r.active.get());
-            ps.setInt(1, to ? 1 : 0);
-            ps.setInt(2, r.id.get());
-            ps.executeUpdate();
-            refresh();
+        boolean to = !"Yes".equals(r.active.get());
+        int id = r.id.get();
+        long expected = r.version.get();
+        bg.run(() -> model.getProjectDao().setActive(id, to, expected),
+               edit -> {
+                   if (edit.conflict()) {
+                       new Alert(Alert.AlertType.WARNING, "This project was changed after the list was loaded, "
+                               + "so it was not toggled. Check the refreshed row and try again.").showAndWait();
+                   }
+                   refresh();
+               },
+               e -> status.setText("Toggle failed: " + e.getMessage()));
+    }
+
+    private void openMetrics() {
+        try {
+            var url = getClass().getResource("/view/MetricsView.fxml");
+            if (url == null) { util.Ui.error("Metrics View", "MetricsView.fxml not found."); return; }
+            var loader = new javafx.fxml.FXMLLoader(url);
+            var mc = new MetricsController(stage, model);
+            loader.setController(mc);
+            Parent root = loader.load();
+            mc.showStage(root);
         } catch (Exception e) {
-            status.setText("Toggle failed: " + e.getMessage());
+            util.Ui.error("Open Metrics Failed", e.getMessage());
         }
     }
 
@@ -157,5 +213,6 @@ public class AdminController {
         final IntegerProperty registered = new SimpleIntegerProperty();
         final IntegerProperty available = new SimpleIntegerProperty();
         final StringProperty active = new SimpleStringProperty();
+        final LongProperty version = new SimpleLongProperty();   // projects.version when listed
     }
 }
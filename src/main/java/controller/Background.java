@@ -0,0 +1,128 @@
+package controller;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
+
+/**
+ * Runs the DAO calls of one window off the JavaFX application thread.
+ * - Each call gets its own virtual thread, so a query waiting on SQLITE_BUSY
+ *   or on a pooled connection never freezes the UI
+ * - onDone/onError are called back on the FX thread (Platform.runLater)
+ * - busyProperty() is true while any call of this window is in flight;
+ *   disableWhileBusy() greys out buttons that would start a second one
+ * - Hiding the window interrupts whatever is still running and drops its result
+ *
+ * run() and every callback happen on the FX thread, so the bookkeeping needs no locks.
+ * A write that was already handed to the DB still commits when its window closes;
+ * only the callback is dropped.
+ */
+final class Background {
+
+    @FunctionalInterface
+    interface Work<T> {
+        T call() throws Exception;
+    }
+
+    private static final ExecutorService EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ui-db-", 0).factory());
+
+    private final Set<FutureTask<?>> running = new HashSet<>();
+    private final ReadOnlyBooleanWrapper busy = new ReadOnlyBooleanWrapper(this, "busy");
+
+    Background(Stage window) {
+        window.addEventHandler(WindowEvent.WINDOW_HIDDEN, e -> cancelAll());
+        busy.addListener((obs, was, now) -> {
+            if (window.getScene() != null) window.getScene().setCursor(now ? Cursor.WAIT : Cursor.DEFAULT);
+        });
+    }
+
+    /**
+     * Starts work on a virtual thread; exactly one of the callbacks runs, unless cancelled.
+     * Cancelling the returned future interrupts the work and skips both callbacks.
+     */
+    <T> Future<T> run(Work<T> work, Consumer<? super T> onDone, Consumer<Throwable> onError) {
+        FutureTask<T> task = new FutureTask<>(work::call) {
+            @Override protected void done() {
+                Platform.runLater(() -> settle(this, onDone, onError));
+            }
+        };
+        running.add(task);
+        busy.set(true);
+        EXECUTOR.execute(task);
+        return task;
+    }
+
+    /**
+     * Progress callback for work running in the background: onFx sees the latest
+     * value on the FX thread, and however fast the work reports, at most one
+     * update is queued at a time.
+     */
+    static LongConsumer progress(LongConsumer onFx) {
+        AtomicLong latest = new AtomicLong();
+        AtomicBoolean queued = new AtomicBoolean();
+        return value -> {
+            latest.set(value);
+            if (queued.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    queued.set(false);
+                    onFx.accept(latest.get());
+                });
+            }
+        };
+    }
+
+    ReadOnlyBooleanProperty busyProperty() {
+        return busy.getReadOnlyProperty();
+    }
+
+    /** Shows an in-flight indicator (spinner, label) only while a call is running. */
+    void showWhileBusy(Node indicator) {
+        if (indicator == null) return;
+        indicator.visibleProperty().bind(busy.getReadOnlyProperty());
+        indicator.managedProperty().bind(busy.getReadOnlyProperty());
+    }
+
+    /** Keeps the given controls disabled while a call is in flight. */
+    void disableWhileBusy(Node... nodes) {
+        for (Node n : nodes) {
+            if (n != null) n.disableProperty().bind(busy.getReadOnlyProperty());
+        }
+    }
+
+    /** Interrupts every running call of this window; their callbacks never run. */
+    void cancelAll() {
+        for (FutureTask<?> t : running) t.cancel(true);
+        running.clear();
+        busy.set(false);
+    }
+
+    private <T> void settle(FutureTask<T> task, Consumer<? super T> onDone, Consumer<Throwable> onError) {
+        if (!running.remove(task)) return;   // cancelled meanwhile
+        busy.set(!running.isEmpty());
+        try {
+            onDone.accept(task.get());
+        } catch (ExecutionException e) {
+            onError.accept(e.getCause());
+        } catch (CancellationException | InterruptedException e) {
+            // cancelled: nobody is waiting for the result
+        }
+    }
+}
@@ -13,6 +13,7 @@ import java.util.List;
 
 public class CartController {
     private final Stage stage = new Stage();
+    private final Background bg = new Background(stage);
     private final Stage parent;
     private final Model model;
 
@@ -21,6 +22,7 @@ public class CartController {
     @FXML private TableColumn<CartItem, Number> colSlots, colHours, colHourly, colTotal;
     @FXML private Button btnRemove, btnConfirm;
     @FXML private Label status;
+    @FXML private ProgressIndicator busy;
 
     public CartController(Stage parent, Model model) {
         this.parent = parent;
@@ -56,30 +58,30 @@ public class CartController {
 
         btnRemove.setOnAction(e -> removeSelected());
         btnConfirm.setOnAction(e -> confirm());
+        bg.disableWhileBusy(btnRemove, btnConfirm);
+        bg.showWhileBusy(busy);
 
         refresh();
     }
 
     private void refresh() {
-        try {
-            var items = model.getCartDao().listCart(model.getCurrentUser().getUsername());
+        String username = model.getCurrentUser().getUsername();
+        bg.run(() -> model.getCartDao().listCart(username), items -> {
             cartTable.setItems(FXCollections.observableArrayList(items));
             status.setText("Items: " + items.size());
-        } catch (Exception e) {
+        }, e -> {
             util.Ui.error("Load Cart Failed", e.getMessage());
             status.setText("Load failed");
-        }
+        });
     }
 
     private void removeSelected() {
         var it = cartTable.getSelectionModel().getSelectedItem();
         if (it == null) { status.setText("Select an item to remove."); return; }
-        try {
-            model.getCartDao().removeCartItem(model.getCurrentUser().getUsername(), it.projectId());
-            refresh();
-        } catch (Exception e) {
-            util.Ui.error("Remove Failed", e.getMessage());
-        }
+        String username = model.getCurrentUser().getUsername();
+        bg.run(() -> { model.getCartDao().removeCartItem(username, it.projectId()); return null; },
+               done -> refresh(),
+               e -> util.Ui.error("Remove Failed", e.getMessage()));
     }
     
     public void showStage(Parent root) {
@@ -116,21 +118,23 @@ public class CartController {
             return;
         }
 
-        java.time.ZoneId zone = java.time.ZoneId.of("Australia/Melbourne");
-        for (model.CartItem it : items) {
-            if (!util.WeekRule.isAllowedThisWeek(it.day(), zone)) {
-                util.Ui.warn("Invalid Day", "Past-day item found: " + it.day());
-                return;
-            }
+        List<model.CartItem> past = util.WeekRule.local().rejected(items, it -> it.day());
+        if (!past.isEmpty()) {
+            util.Ui.warn("Invalid Day", "Past-day item found: " + past.get(0).day());
+            return;
         }
 
-        try {
-            model.getRegistrationDao().confirm(model.getCurrentUser().getUsername(), items);
-            util.Ui.info("Success", "Registration confirmed!");
-            refresh();
-        } catch (Exception e) {
-            util.Ui.error("Confirm Failed", e.getMessage());
-        }
-        
+        String username = model.getCurrentUser().getUsername();
+        List<model.CartItem> snapshot = List.copyOf(items);
+        status.setText("Confirming…");
+        bg.run(() -> { model.getRegistrationDao().confirm(username, snapshot); return null; },
+            done -> {
+                util.Ui.info("Success", "Registration confirmed!");
+                refresh();
+            },
+            e -> {
+                status.setText("Confirm failed");
+                util.Ui.error("Confirm Failed", e.getMessage());
+            });
     }
 }
@@ -1,5 +1,8 @@
 package controller;
 
+import javafx.animation.PauseTransition;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -8,15 +11,40 @@ import javafx.scene.Parent;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleDoubleProperty;
+import javafx.util.Duration;
+
+import java.util.concurrent.Future;
+
+import dao.ProjectQuery;
 
 import model.Model;
 import model.Project;
 import util.WeekRule;
 
 public class HomeController {
+    private static final int SEARCH_PAGE = 100;
+    private static final int PREFETCH_ROWS = 20;
+    private static final String ANY_DAY = "Any day";
+    // same order as ProjectQuery.Sort
+    private static final String[] SORT_LABELS = { "Title", "Hourly (high–low)", "Hourly (low–high)", "Most available" };
+
     private final Model model;
     private final Stage stage;
     private final Stage parentStage;
+    private final Background bg;
+    private Future<?> refreshing;   // the last call started, not a flag: a cancelled call runs no callback to clear one
+
+    // search: while a filter is set the table shows these pages instead of the live catalog
+    private final ObservableList<Project> results = FXCollections.observableArrayList();
+    private final PauseTransition searchDelay = new PauseTransition(Duration.millis(200));
+    private ProjectQuery nextPage;   // null when not searching
+    private boolean searchMore;
+    private Future<?> searchLoading;
+
+    @FXML private TextField searchField;
+    @FXML private ChoiceBox<String> dayFilter;
+    @FXML private CheckBox freeOnly;
+    @FXML private ChoiceBox<String> sortBy;
 
     @FXML private Label welcomeLabel;
     @FXML private TableView<Project> projectsTable;
@@ -29,17 +57,20 @@ public class HomeController {
     @FXML private Button btnAddToCart;
     @FXML private Button btnViewCart;
     @FXML private Label homeStatus;
+    @FXML private ProgressIndicator busy;
 
     @FXML private MenuItem viewProfile;
     @FXML private MenuItem updateProfile;
     @FXML private Button btnUpdatePw;
     @FXML private Button btnMyRegs;
     @FXML private Button btnAdmin;
+    @FXML private Button btnLogout;
 
     public HomeController(Stage parentStage, Model model) {
         this.stage = new Stage();
         this.parentStage = parentStage;
         this.model = model;
+        this.bg = new Background(stage);
     }
 
     @FXML
@@ -59,11 +90,30 @@ public class HomeController {
             }
         });
 
+        // --- Search and filters: run in the DB, one page at a time ---
+        dayFilter.getItems().add(ANY_DAY);
+        dayFilter.getItems().addAll("Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun");
+        dayFilter.setValue(ANY_DAY);
+        sortBy.getItems().addAll(SORT_LABELS);
+        sortBy.getSelectionModel().select(0);
+        searchDelay.setOnFinished(e -> search());
+        searchField.textProperty().addListener((obs, o, n) -> searchDelay.playFromStart());   // wait for a pause in typing
+        dayFilter.valueProperty().addListener((obs, o, n) -> search());
+        freeOnly.selectedProperty().addListener((obs, o, n) -> search());
+        sortBy.getSelectionModel().selectedIndexProperty().addListener((obs, o, n) -> search());
+        projectsTable.setRowFactory(tv -> new TableRow<>() {
+            @Override public void updateIndex(int i) {
+                super.updateIndex(i);
+                if (i >= 0 && nextPage != null && i >= results.size() - PREFETCH_ROWS) loadMoreResults();
+            }
+        });
+
         // --- Buttons ---
         if (btnUpdatePw != null) btnUpdatePw.setOnAction(e -> openUpdatePassword());
         if (btnAddToCart != null) btnAddToCart.setOnAction(e -> handleAddToCart());
         if (btnViewCart  != null) btnViewCart.setOnAction(e -> openCart());
         if (btnMyRegs   != null) btnMyRegs.setOnAction(e -> openMyRegistrations());
+        if (btnLogout   != null) btnLogout.setOnAction(e -> logout());
 
         // Admin only for username "admin"
         if (btnAdmin != null) {
@@ -79,12 +129,11 @@ public class HomeController {
         }
 
         // --- Load projects ---
-        try {
-            model.loadProjects();
-            projectsTable.setItems(model.getProjects());
-        } catch (Exception e) {
-            welcomeLabel.setText("Error loading projects: " + e.getMessage());
-        }
+        bg.showWhileBusy(busy);
+        projectsTable.setItems(model.getProjects());
+        // the catalog may have been cached by an earlier window, so ask the DB what changed since
+        bg.run(() -> model.fetchProjects(true), model::applyProjects,
+               e -> welcomeLabel.setText("Error loading projects: " + e.getMessage()));
 
         // --- Disable Add to Cart until valid selection ---
         if (btnAddToCart != null) btnAddToCart.setDisable(true);
@@ -102,17 +151,63 @@ public class HomeController {
         stage.setScene(scene);
         stage.setResizable(false);
         stage.setTitle("Dashboard");
+        // coming back from the cart/admin windows: pick up slot changes
+        stage.focusedProperty().addListener((obs, was, focused) -> { if (focused) refreshProjects(); });
         stage.show();
         projectsTable.requestFocus();
     }
 
+    // only the rows that changed are touched, so this is cheap enough to run on every focus
     public void refreshProjects() {
-        try {
-            model.loadProjects();
+        if (nextPage != null) { search(); return; }   // slot counts may have changed which rows match
+        if (inFlight(refreshing)) return;   // focus can flicker; one refresh in flight is enough
+        refreshing = bg.run(() -> model.fetchProjects(true), model::applyProjects,
+                            e -> setStatus("Refresh failed: " + e.getMessage()));
+    }
+
+    private ProjectQuery currentQuery() {
+        String day = dayFilter.getValue();
+        return ProjectQuery.ALL
+                .withText(searchField.getText())
+                .withDay(ANY_DAY.equals(day) ? null : day)
+                .withMinAvailable(freeOnly.isSelected() ? 1 : 0)
+                .sortedBy(ProjectQuery.Sort.values()[Math.max(0, sortBy.getSelectionModel().getSelectedIndex())])
+                .page(0, SEARCH_PAGE);
+    }
+
+    // starts over with the current filters; without any, the table goes back to the live catalog
+    private void search() {
+        searchDelay.stop();
+        ProjectQuery q = currentQuery();
+        if (!q.filtered() && q.sort() == ProjectQuery.Sort.TITLE) {
+            nextPage = null;
+            results.clear();
             projectsTable.setItems(model.getProjects());
-        } catch (Exception e) {
-            e.printStackTrace();
+            refreshProjects();
+            return;
         }
+        nextPage = q;
+        searchMore = true;
+        results.clear();
+        projectsTable.setItems(results);
+        loadMoreResults();
+    }
+
+    private void loadMoreResults() {
+        if (nextPage == null || !searchMore || inFlight(searchLoading)) return;
+        ProjectQuery q = nextPage;
+        searchLoading = bg.run(() -> model.searchProjects(q), page -> {
+            if (q != nextPage) { loadMoreResults(); return; }   // filters changed while this page loaded
+            results.addAll(page.rows());
+            searchMore = page.more();
+            nextPage = q.next();
+            setStatus(searchMore ? "Matches: " + results.size() + "+ (scroll for more)" : "Matches: " + results.size());
+        }, e -> setStatus("Search failed: " + e.getMessage()));
+    }
+
+    // done covers cancelled too, when neither callback runs
+    private static boolean inFlight(Future<?> call) {
+        return call != null && !call.isDone();
     }
 
     private void handleAddToCart() {
@@ -126,19 +221,26 @@ public class HomeController {
         if (hours == null) { setStatus("Cancelled."); return; }
 
         if (slots > p.getAvailableSlots()) { setStatus("Not enough slots available."); return; }
-        if (!WeekRule.isAllowedThisWeek(p.getDay(), java.time.ZoneId.of("Australia/Melbourne"))) {
+        if (!WeekRule.local().allows(p.getDay())) {
             setStatus("You can’t register for a past day this week."); return;
         }
 
-        try {
-            model.getCartDao().upsertCartItem(
-                model.getCurrentUser().getUsername(), p.getId(), slots, hours
-            );
-            double est = p.getHourlyValue() * slots * hours;
-            setStatus(String.format("Added: %s — %d×%dh = $%.2f", p.getTitle(), slots, hours, est));
-        } catch (Exception ex) {
-            util.Ui.error("Add to Cart Failed", ex.getMessage());
-        }
+        String username = model.getCurrentUser().getUsername();
+        setStatus("Adding " + p.getTitle() + "…");
+        bg.run(() -> { model.getCartDao().upsertCartItem(username, p.getId(), slots, hours); return null; },
+            done -> {
+                double est = p.getHourlyValue() * slots * hours;
+                setStatus(String.format("Added: %s — %d×%dh = $%.2f", p.getTitle(), slots, hours, est));
+            },
+            ex -> util.Ui.error("Add to Cart Failed", ex.getMessage()));
+    }
+
+    private void logout() {
+        SavedSession.clear();
+        bg.run(() -> { model.endSession(); return null; }, done -> {
+            stage.close();
+            if (parentStage != null) parentStage.show();
+        }, e -> setStatus("Log out failed: " + e.getMessage()));
     }
 
     private void openCart() {
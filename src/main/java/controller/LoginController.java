@@ -1,13 +1,13 @@
 package controller;
 
 import java.io.IOException;
-import java.sql.SQLException;
 import java.net.URL;
 
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
@@ -16,7 +16,6 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import model.Model;
-import model.User;
 
 public class LoginController {
     @FXML private TextField name;
@@ -24,17 +23,22 @@ public class LoginController {
     @FXML private Label message;
     @FXML private Button login;
     @FXML private Button signup;
+    @FXML private CheckBox remember;
 
     private final Model model;
     private final Stage stage;
+    private final Background bg;
 
     public LoginController(Stage stage, Model model) {
         this.stage = stage;
         this.model = model;
+        this.bg = new Background(stage);
     }
 
     @FXML
     public void initialize() {
+        bg.disableWhileBusy(login, signup);
+
         login.setOnAction(event -> {
             final String u = name.getText().trim();
             final String p = password.getText(); // don't trim passwords
@@ -44,44 +48,28 @@ public class LoginController {
                 return;
             }
 
-            try {
-                User user = model.getUserDao().getUserByCredentials(u, p);
-                if (user == null) {
+            final boolean keep = remember.isSelected();
+            bg.run(() -> {
+                var user = model.getUserDao().getUserByCredentials(u, p);
+                return user == null ? null : model.startSession(user, keep);
+            }, token -> {
+                if (token == null) {
                     showError("Wrong username or password");
                     return;
                 }
-
-                model.setCurrentUser(user);
-
-                // ---- Load HomeView.fxml safely ----
-                URL url = getClass().getResource("/view/HomeView.fxml");
-                System.out.println("FXML URL (Home): " + url);
-                if (url == null) {
-                    showError("HomeView.fxml not found at /view/HomeView.fxml");
-                    return;
-                }
-
-                FXMLLoader loader = new FXMLLoader(url);
-                HomeController homeController = new HomeController(stage, model);
-                loader.setController(homeController);
-                VBox root = loader.load();                  
-                homeController.showStage(root);
-                stage.close();
-           
-
-            } catch (SQLException e) {
+                if (keep) SavedSession.save(token); else SavedSession.clear();
+                openHome();
+            }, e -> {
                 e.printStackTrace();
                 showError("Database error: " + e.getMessage());
-            } catch (IOException e) {
-                e.printStackTrace();
-                showError("Failed to load Home view (see console)");
-            }
+            });
         });
 
+        resumeSavedSession();
+
         signup.setOnAction(event -> {
             try {
                 URL url = getClass().getResource("/view/SignupView.fxml");
-                System.out.println("FXML URL (Signup): " + url);
                 if (url == null) {
                     showError("SignupView.fxml not found at /view/SignupView.fxml");
                     return;
@@ -103,6 +91,39 @@ public class LoginController {
         });
     }
 
+    // "remember me" from an earlier run: straight to the dashboard if the session is still live
+    private void resumeSavedSession() {
+        String saved = SavedSession.load();
+        if (saved == null) return;
+        message.setText("Signing in…");
+        bg.run(() -> model.resumeSession(saved), ok -> {
+            message.setText("");
+            if (ok) openHome(); else SavedSession.clear();
+        }, e -> showError("Could not restore session: " + e.getMessage()));
+    }
+
+    private void openHome() {
+        password.clear();
+        try {
+            // ---- Load HomeView.fxml safely ----
+            URL url = getClass().getResource("/view/HomeView.fxml");
+            if (url == null) {
+                showError("HomeView.fxml not found at /view/HomeView.fxml");
+                return;
+            }
+
+            FXMLLoader loader = new FXMLLoader(url);
+            HomeController homeController = new HomeController(stage, model);
+            loader.setController(homeController);
+            VBox root = loader.load();
+            homeController.showStage(root);
+            stage.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            showError("Failed to load Home view (see console)");
+        }
+    }
+
     private void showError(String text) {
         message.setText(text);
         message.setTextFill(Color.RED);
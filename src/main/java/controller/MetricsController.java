@@ -0,0 +1,102 @@
+package controller;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import dao.DaoMetrics;
+import dao.DaoMetrics.MethodStats;
+import dao.Database;
+import dao.TxExecutor;
+import model.Model;
+
+import java.io.File;
+import java.util.function.ToDoubleFunction;
+
+// Admin-only: where DAO time goes, from Model's DaoMetrics
+public class MetricsController {
+    private final Stage stage = new Stage();
+    private final Background bg = new Background(stage);
+    private final Stage parent;
+    private final DaoMetrics metrics;
+
+    @FXML private TableView<MethodStats> tbl;
+    @FXML private TableColumn<MethodStats, String> colMethod;
+    @FXML private TableColumn<MethodStats, Number> colCalls, colErrors, colRows, colMean, colP50, colP95, colP99, colMax;
+    @FXML private ListView<String> slow;
+    @FXML private Button btnRefresh, btnReset, btnExport, btnClose;
+    @FXML private Label status, writes;
+
+    public MetricsController(Stage parent, Model model) {
+        this.parent = parent;
+        this.metrics = model.getMetrics();
+    }
+
+    @FXML
+    public void initialize() {
+        colMethod.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().method()));
+        colCalls.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().calls()));
+        colErrors.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().errors()));
+        colRows.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().rows()));
+        millis(colMean, MethodStats::meanMs);
+        millis(colP50, MethodStats::p50Ms);
+        millis(colP95, MethodStats::p95Ms);
+        millis(colP99, MethodStats::p99Ms);
+        millis(colMax, MethodStats::maxMs);
+
+        btnRefresh.setOnAction(e -> refresh());
+        btnReset.setOnAction(e -> { metrics.reset(); refresh(); });
+        btnExport.setOnAction(e -> export());
+        btnClose.setOnAction(e -> { stage.close(); if (parent != null) parent.show(); });
+        bg.disableWhileBusy(btnExport);
+
+        refresh();
+    }
+
+    private static void millis(TableColumn<MethodStats, Number> col, ToDoubleFunction<MethodStats> value) {
+        col.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(value.applyAsDouble(c.getValue())));
+        col.setCellFactory(x -> new TableCell<>() {
+            @Override protected void updateItem(Number n, boolean empty) {
+                super.updateItem(n, empty);
+                setText(empty ? "" : String.format("%.3f", n.doubleValue()));
+            }
+        });
+    }
+
+    private void refresh() {
+        tbl.setItems(FXCollections.observableArrayList(metrics.snapshot()));
+        var lines = FXCollections.<String>observableArrayList();
+        for (var c : metrics.slowCalls()) {
+            lines.add(String.format("%s  %.1f ms  %s(%s)%s", c.at(), c.ms(), c.method(), c.args(),
+                    c.error() == null ? "" : "  failed: " + c.error()));
+        }
+        slow.setItems(lines);
+        TxExecutor.Stats tx = Database.transactions().stats();
+        writes.setText(String.format("Writes: %d, %d attempts, %d retried (%d busy, %d locked), %d gave up, %d constraint failures",
+                tx.calls(), tx.attempts(), tx.retries(), tx.busy(), tx.locked(), tx.gaveUp(), tx.constraint()));
+        status.setText(tbl.getItems().size() + " methods, " + lines.size() + " slow calls");
+    }
+
+    private void export() {
+        var fc = new FileChooser();
+        fc.setTitle("Export DAO metrics");
+        fc.setInitialFileName("dao-metrics.txt");
+        File file = fc.showSaveDialog(stage);
+        if (file == null) return;
+        bg.run(() -> { metrics.exportTo(file.toPath()); return file; },
+               f -> status.setText("Exported to " + f.getName()),
+               ex -> status.setText("Export failed: " + ex.getMessage()));
+    }
+
+    public void showStage(Parent root) {
+        Scene scene = new Scene(root, 920, 500);
+        scene.setOnKeyPressed(ev -> { if (ev.getCode() == javafx.scene.input.KeyCode.ESCAPE) stage.close(); });
+        stage.setScene(scene);
+        stage.setTitle("Admin — DAO Metrics");
+        stage.show();
+    }
+}
@@ -2,28 +2,42 @@ package controller;
 
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
+import dao.RegistrationDao;
+import model.HistoryExport;
 import model.Model;
 import model.RegistrationDetail;
 
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.Future;
 
 public class RegistrationsController {
+    private static final int PAGE_SIZE = 100;
+    private static final int PREFETCH_ROWS = 20;   // fetch the next page this close to the end
+
     private final Stage stage = new Stage();
+    private final Background bg = new Background(stage);
     private final Stage parent;
     private final Model model;
 
+    // history is fetched a page at a time as the table scrolls towards its end
+    private final ObservableList<Row> rows = FXCollections.observableArrayList();
+    private RegistrationDao.Cursor next = RegistrationDao.Cursor.NEWEST;   // null: all loaded
+    private boolean loading;
+    private Future<?> exporting;   // non-null while an export runs
+    private String exportLabel;
+
     @FXML private TableView<Row> tbl;
     @FXML private TableColumn<Row, String> colRegId, colWhen, colTitle, colLocation, colDay;
     @FXML private TableColumn<Row, Number> colSlots, colHours, colTotal;
     @FXML private Button btnExport, btnClose;
     @FXML private Label status;
+    @FXML private ProgressIndicator busy;
 
     public RegistrationsController(Stage parent, Model model) {
         this.parent = parent;
@@ -49,51 +63,94 @@ public class RegistrationsController {
             }
         });
 
-        btnExport.setOnAction(e -> exportTxt());
+        // a row shown near the end of what is loaded asks for the next page
+        tbl.setRowFactory(tv -> new TableRow<>() {
+            @Override public void updateIndex(int i) {
+                super.updateIndex(i);
+                if (i >= 0 && i >= rows.size() - PREFETCH_ROWS) loadMore();
+            }
+        });
+        tbl.setItems(rows);
+
+        exportLabel = btnExport.getText();
+        btnExport.setOnAction(e -> export());
+        bg.showWhileBusy(busy);
         btnClose.setOnAction(e -> { stage.close(); if (parent != null) parent.show(); });
 
-        refresh();
+        loadMore();
     }
 
-    private void refresh() {
-        try {
-            List<RegistrationDetail> details =
-                    model.getRegistrationDao().listDetailsByUser(model.getCurrentUser().getUsername());
-            var rows = details.stream().map(Row::from).toList();
-            tbl.setItems(FXCollections.observableArrayList(rows));
-            status.setText("Total: " + rows.size());
-        } catch (Exception e) {
+    private void loadMore() {
+        if (loading || next == null) return;
+        loading = true;
+        String username = model.getCurrentUser().getUsername();
+        RegistrationDao.Cursor after = next;
+        bg.run(() -> {
+            RegistrationDao.Page page = model.getRegistrationDao().pageDetailsByUser(username, after, PAGE_SIZE);
+            return new LoadedPage(page.rows().stream().map(Row::from).toList(), page.next());
+        }, page -> {
+            loading = false;
+            next = page.next();
+            rows.addAll(page.rows());
+            status.setText(next == null ? "Total: " + rows.size() : "Showing " + rows.size() + " (scroll for more)");
+        }, e -> {
+            loading = false;
             status.setText("Load failed: " + e.getMessage());
-        }
+        });
     }
 
-    private void exportTxt() {
-        var rows = tbl.getItems();
+    private record LoadedPage(List<Row> rows, RegistrationDao.Cursor next) { }
+
+    private void export() {
+        if (exporting != null) {   // the button reads "Cancel export" meanwhile
+            exporting.cancel(true);
+            endExport("Export cancelled.");
+            return;
+        }
         if (rows.isEmpty()) { status.setText("Nothing to export."); return; }
 
         String user = model.getCurrentUser().getUsername();
         var fc = new javafx.stage.FileChooser();
         fc.setTitle("Export Participation History");
-        fc.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter("Text Files", "*.txt"));
+        for (HistoryExport.Format f : HistoryExport.Format.values()) {
+            fc.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter(
+                    f.name() + " Files", "*." + f.extension));
+        }
         fc.setInitialFileName("history_" + user + ".txt");
         var file = fc.showSaveDialog(stage);
         if (file == null) return;
+        HistoryExport.Format format = formatOf(file.getName(), fc.getSelectedExtensionFilter());
+
+        // streams the whole history from the DB, not just the pages in the table
+        btnExport.setText("Cancel export");
+        exporting = bg.run(
+            () -> new HistoryExport(model.getRegistrationDao()).export(user, format, file.toPath(),
+                    Background.progress(n -> { if (exporting != null) status.setText("Exporting… " + n + " rows"); })),
+            n -> endExport("Exported " + n + " rows to " + file.getName()),
+            e -> {
+                endExport("Export failed");
+                util.Ui.error("Export failed", e.getMessage());
+            });
+    }
 
-        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
-            out.println("Volunteer: " + user);
-            out.println();
-            for (var r : rows) {
-                out.printf("Reg ID: %s%n", r.regId.get());
-                out.printf("When:   %s%n", r.when.get());
-                out.printf("Project: %s (%s) — %s%n", r.title.get(), r.location.get(), r.day.get());
-                out.printf("Slots:   %d, Hours: %d%n", r.slots.get(), r.hours.get());
-                out.printf("Total:   $%.2f%n", r.total.get());
-                out.println("----------------------------------------");
+    private void endExport(String message) {
+        exporting = null;
+        btnExport.setText(exportLabel);
+        status.setText(message);
+    }
+
+    // the typed extension wins over the filter that happened to be selected
+    private static HistoryExport.Format formatOf(String name, javafx.stage.FileChooser.ExtensionFilter filter) {
+        String lower = name.toLowerCase(java.util.Locale.ROOT);
+        for (HistoryExport.Format f : HistoryExport.Format.values()) {
+            if (lower.endsWith("." + f.extension)) return f;
+        }
+        if (filter != null) {
+            for (HistoryExport.Format f : HistoryExport.Format.values()) {
+                if (filter.getExtensions().contains("*." + f.extension)) return f;
             }
-            status.setText("Exported to " + file.getName());
-        } catch (Exception e) {
-            util.Ui.error("Export failed", e.getMessage());
         }
+        return HistoryExport.Format.TXT;
     }
 
     public void showStage(Parent root) {
@@ -0,0 +1,29 @@
+package controller;
+
+import java.util.prefs.Preferences;
+
+/**
+ * The "remember me" token, kept in the user's Java preferences between runs.
+ * Only the token is stored; the sessions table holds a hash of it.
+ */
+final class SavedSession {
+    private static final String KEY = "sessionToken";
+
+    private SavedSession() {}
+
+    private static Preferences node() {
+        return Preferences.userNodeForPackage(SavedSession.class);
+    }
+
+    static String load() {
+        return node().get(KEY, null);
+    }
+
+    static void save(String token) {
+        node().put(KEY, token);
+    }
+
+    static void clear() {
+        node().remove(KEY);
+    }
+}
@@ -1,7 +1,5 @@
 package controller;
 
-import java.sql.SQLException;
-
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -11,7 +9,6 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import model.Model;
-import model.User;
 import util.PasswordPolicy;
 
 public class SignupController {
@@ -26,15 +23,33 @@ public class SignupController {
     private Stage stage;
     private Stage parentStage;
     private Model model;
+    private Background bg;
 
     public SignupController(Stage parentStage, Model model) {
         this.stage = new Stage();
         this.parentStage = parentStage;
         this.model = model;
+        this.bg = new Background(stage);
     }
 
     @FXML
     public void initialize() {
+        bg.disableWhileBusy(createUser);
+
+        // early word on a taken name; mostly answered from memory, the Create click still decides
+        username.focusedProperty().addListener((obs, was, now) -> {
+            String u = username.getText().trim();
+            if (now || u.isEmpty()) return;
+            bg.run(() -> model.getUserDao().usernameExists(u),
+                   taken -> { if (taken) setError("Username already exists"); }, e -> { });
+        });
+        email.focusedProperty().addListener((obs, was, now) -> {
+            String em = email.getText().trim();
+            if (now || em.isEmpty()) return;
+            bg.run(() -> model.getUserDao().emailExists(em),
+                   taken -> { if (taken) setError("Email already registered"); }, e -> { });
+        });
+
         createUser.setOnAction(event -> {
             String fn = fullName.getText();
             String u  = username.getText();
@@ -45,28 +60,24 @@ public class SignupController {
                 setError("All fields are required");
                 return;
             }
-            if (!PasswordPolicy.valid(pw)) {
-                setError("Password ≥8 with upper, lower, digit, special");
+            var failed = PasswordPolicy.failedRules(pw);
+            if (!failed.isEmpty()) {
+                setError(PasswordPolicy.describe(failed));
                 return;
             }
 
-            try {
-                if (model.getUserDao().usernameExists(u)) {
-                    setError("Username already exists");
-                    return;
-                }
-                User user = model.getUserDao().createUser(fn, u, em, pw);
-                if (user != null) {
-                    status.setText("Created " + user.getUsername());
-                    status.setTextFill(Color.GREEN);
-                    // (Optional) clear fields
-                    // fullName.clear(); username.clear(); email.clear(); password.clear();
-                } else {
-                    setError("Cannot create user");
+            bg.run(() -> model.getUserDao().register(fn, u, em, pw), signup -> {
+                switch (signup.outcome()) {
+                    case CREATED -> {
+                        status.setText("Created " + signup.user().getUsername());
+                        status.setTextFill(Color.GREEN);
+                        // (Optional) clear fields
+                        // fullName.clear(); username.clear(); email.clear(); password.clear();
+                    }
+                    case USERNAME_TAKEN -> setError("Username already exists");
+                    case EMAIL_TAKEN -> setError("Email already registered");
                 }
-            } catch (SQLException e) {
-                setError(e.getMessage());
-            }
+            }, e -> setError(e.getMessage()));
         });
 
         close.setOnAction(event -> {
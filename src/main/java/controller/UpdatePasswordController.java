@@ -11,6 +11,7 @@ import util.PasswordHasher;
 
 public class UpdatePasswordController {
     private final Stage stage = new Stage();
+    private final Background bg = new Background(stage);
     private final Stage parent;
     private final Model model;
 
@@ -27,6 +28,7 @@ public class UpdatePasswordController {
     public void initialize() {
         btnSave.setOnAction(e -> save());
         btnClose.setOnAction(e -> { stage.close(); if (parent != null) parent.show(); });
+        bg.disableWhileBusy(btnSave);
     }
 
     private void save() {
@@ -37,21 +39,20 @@ public class UpdatePasswordController {
         return; }
         if (!n1.equals(n2)) { status.setText("New passwords do not match."); 
         return; }
-        if (!PasswordPolicy.valid(n1)) { status.setText("Password ≥8, upper, lower, digit, special."); 
+        var failed = PasswordPolicy.failedRules(n1);
+        if (!failed.isEmpty()) { status.setText(PasswordPolicy.describe(failed) + ".");
         return; }
 
-        var user = model.getCurrentUser();
-        try {
+        String username = model.getCurrentUser().getUsername();
+        bg.run(() -> {
             // verify current password
-            var found = model.getUserDao().getUserByCredentials(user.getUsername(), c);
-            if (found == null) { status.setText("Current password incorrect."); 
-            return; }
+            var found = model.getUserDao().getUserByCredentials(username, c);
+            if (found == null) return "Current password incorrect.";
 
-            boolean ok = model.getUserDao().updatePassword(user.getUsername(), n1);
-            status.setText(ok ? "Password updated." : "Update failed.");
-        } catch (Exception ex) {
-            status.setText("Error: " + ex.getMessage());
-        }
+            boolean ok = model.getUserDao().updatePassword(username, n1);
+            if (ok) model.endOtherSessions();
+            return ok ? "Password updated." : "Update failed.";
+        }, status::setText, ex -> status.setText("Error: " + ex.getMessage()));
     }
 
 
@@ -4,6 +4,7 @@ package dao;
 import model.CartItem;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface CartDao {
     void upsertCartItem(String username, int projectId, int slots, int hours) 
@@ -14,4 +15,9 @@ public interface CartDao {
     		throws SQLException;
     List<CartItem> listCart(String username) 
     		throws SQLException;
+
+    // group-committed variants: the future completes once the write is committed
+    CompletableFuture<Void> upsertCartItemAsync(String username, int projectId, int slots, int hours);
+    CompletableFuture<Void> removeCartItemAsync(String username, int projectId);
+    CompletableFuture<Void> clearCartAsync(String username);
 }
@@ -4,54 +4,80 @@ import model.CartItem;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class CartDaoImpl implements CartDao {
+    // SQL is kept in constants so QueryPlanAudit can check the plans
+    static final String UPSERT_SQL = """
+        INSERT INTO cart_items(username, project_id, slots, hours, added_at)
+        VALUES(?,?,?,?,datetime('now'))
+        ON CONFLICT(username, project_id) DO UPDATE SET
+          slots=excluded.slots, hours=excluded.hours, added_at=datetime('now')
+    """;
+    static final String REMOVE_SQL = "DELETE FROM cart_items WHERE username=? AND project_id=?";
+    static final String CLEAR_SQL = "DELETE FROM cart_items WHERE username=?";
+    static final String LIST_SQL = """
+        SELECT p.id, p.title, p.location, p.day, p.hourly_value, c.slots, c.hours
+        FROM cart_items c JOIN projects p ON p.id=c.project_id
+        WHERE c.username=?
+    """;
+
     @Override
     public void upsertCartItem(String username, int projectId, int slots, int hours) throws SQLException {
-        try (Connection c = Database.getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("""
-                INSERT INTO cart_items(username, project_id, slots, hours, added_at)
-                VALUES(?,?,?,?,datetime('now'))
-                ON CONFLICT(username, project_id) DO UPDATE SET
-                  slots=excluded.slots, hours=excluded.hours, added_at=datetime('now')
-            """)) {
+        WriteQueue.await(upsertCartItemAsync(username, projectId, slots, hours));
+    }
+
+    @Override
+    public void removeCartItem(String username, int projectId) throws SQLException {
+        WriteQueue.await(removeCartItemAsync(username, projectId));
+    }
+
+    @Override
+    public void clearCart(String username) throws SQLException {
+        WriteQueue.await(clearCartAsync(username));
+    }
+
+    @Override
+    public CompletableFuture<Void> upsertCartItemAsync(String username, int projectId, int slots, int hours) {
+        return Database.writeQueue().submit(c -> {
+            try (PreparedStatement ps = c.prepareStatement(UPSERT_SQL)) {
                 ps.setString(1, username);
                 ps.setInt(2, projectId);
                 ps.setInt(3, slots);
                 ps.setInt(4, hours);
                 ps.executeUpdate();
             }
-        }
+            return null;
+        });
     }
 
     @Override
-    public void removeCartItem(String username, int projectId) throws SQLException {
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement("DELETE FROM cart_items WHERE username=? AND project_id=?")) {
-            ps.setString(1, username);
-            ps.setInt(2, projectId);
-            ps.executeUpdate();
-        }
+    public CompletableFuture<Void> removeCartItemAsync(String username, int projectId) {
+        return Database.writeQueue().submit(c -> {
+            try (PreparedStatement ps = c.prepareStatement(REMOVE_SQL)) {
+                ps.setString(1, username);
+                ps.setInt(2, projectId);
+                ps.executeUpdate();
+            }
+            return null;
+        });
     }
 
     @Override
-    public void clearCart(String username) throws SQLException {
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement("DELETE FROM cart_items WHERE username=?")) {
-            ps.setString(1, username);
-            ps.executeUpdate();
-        }
+    public CompletableFuture<Void> clearCartAsync(String username) {
+        return Database.writeQueue().submit(c -> {
+            try (PreparedStatement ps = c.prepareStatement(CLEAR_SQL)) {
+                ps.setString(1, username);
+                ps.executeUpdate();
+            }
+            return null;
+        });
     }
 
     @Override
     public List<CartItem> listCart(String username) throws SQLException {
-        String sql = """
-            SELECT p.id, p.title, p.location, p.day, p.hourly_value, c.slots, c.hours
-            FROM cart_items c JOIN projects p ON p.id=c.project_id
-            WHERE c.username=?
-            """;
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement(LIST_SQL)) {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
                 List<CartItem> out = new ArrayList<>();
@@ -0,0 +1,216 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of SQLite connections.
+ * - Physical connections are opened lazily, up to maxSize, and reused
+ * - PRAGMAs are applied once, when a physical connection is opened
+ * - Idle connections are validated before being handed out again
+ * - A caller waits at most maxWaitMillis for a free connection
+ *
+ * Callers just close() the connection they got; the proxy hands it back.
+ */
+final class ConnectionPool {
+    private static final int VALIDATE_TIMEOUT_SECONDS = 1;
+
+    private final String url;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long validateAfterMillis;
+    private final List<String> pragmas;
+
+    private final Semaphore permits;
+    private final BlockingDeque<Idle> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger open = new AtomicInteger();
+
+    // stats
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    private record Idle(Connection raw, long since) { }
+
+    ConnectionPool(String url, int maxSize, long maxWaitMillis, long validateAfterMillis, List<String> pragmas) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be >= 1");
+        this.url = url;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.validateAfterMillis = validateAfterMillis;
+        this.pragmas = List.copyOf(pragmas);
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + maxWaitMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            Connection raw = takeIdle();
+            if (raw == null) raw = openPhysical();
+            active.incrementAndGet();
+            borrows.increment();
+            return wrap(raw);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    PoolStats stats() {
+        long n = borrows.sum();
+        return new PoolStats(
+            active.get(),
+            idle.size(),
+            open.get(),
+            maxSize,
+            n,
+            timeouts.sum(),
+            n == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / n,
+            maxWaitNanos.get() / 1_000_000.0
+        );
+    }
+
+    /** Closes idle connections now; borrowed ones are closed when handed back. */
+    void close() {
+        closed = true;
+        Idle i;
+        while ((i = idle.pollFirst()) != null) closeQuietly(i.raw());
+    }
+
+    // --- helpers ---
+
+    private Connection takeIdle() {
+        Idle i;
+        // LIFO: the most recently used connection has the warmest page cache
+        while ((i = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - i.since() < validateAfterMillis || isValid(i.raw())) {
+                return i.raw();
+            }
+            closeQuietly(i.raw());
+        }
+        return null;
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection raw = DriverManager.getConnection(url);
+        try (Statement s = raw.createStatement()) {
+            for (String p : pragmas) s.execute("PRAGMA " + p);
+        } catch (SQLException e) {
+            raw.close();
+            throw e;
+        }
+        open.incrementAndGet();
+        return raw;
+    }
+
+    private void release(Connection raw) {
+        boolean reusable = !closed;
+        try {
+            // leave no half-finished transaction behind for the next caller
+            if (reusable && !raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            idle.offerFirst(new Idle(raw, System.currentTimeMillis()));
+        } else {
+            closeQuietly(raw);
+        }
+        active.decrementAndGet();
+        permits.release();
+    }
+
+    private static boolean isValid(Connection raw) {
+        try {
+            return raw.isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void closeQuietly(Connection raw) {
+        try {
+            raw.close();
+        } catch (SQLException ignored) {
+            // nothing useful to do
+        } finally {
+            open.decrementAndGet();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private Connection wrap(Connection raw) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            new Lease(raw));
+    }
+
+    // Delegates everything to the physical connection except close()/isClosed()
+    private final class Lease implements InvocationHandler {
+        private final Connection raw;
+        private boolean returned;
+
+        Lease(Connection raw) { this.raw = raw; }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            switch (m.getName()) {
+                case "close" -> {
+                    if (!returned) { returned = true; release(raw); }
+                    return null;
+                }
+                case "isClosed" -> { return returned || raw.isClosed(); }
+                case "equals" -> { return proxy == args[0]; }
+                case "hashCode" -> { return System.identityHashCode(proxy); }
+                case "toString" -> { return "Pooled[" + raw + "]"; }
+                default -> { /* delegate */ }
+            }
+            if (returned) throw new SQLException("Connection already returned to the pool");
+            try {
+                return m.invoke(raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package dao;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streaming CSV/TSV record reader, one record in memory at a time.
+ * - Fields may be wrapped in double quotes; inside them delimiters and line breaks
+ *   are literal and "" is one quote
+ * - Cells are trimmed, and a cell wrapped in single quotes loses them (as the old split did)
+ * - CRLF, LF and lone CR all end a record; blank lines are skipped
+ *
+ * Every record is parsed into one reused char buffer; a String is only built for the
+ * cells the caller asks for.
+ */
+final class CsvReader implements CsvRecords {
+    private final Reader in;
+    private final char delim;
+    private final char[] chunk = new char[1 << 16];
+    private int pos, limit;
+
+    // current record: cells are [starts[i], ends[i]) in cells
+    private char[] cells = new char[256];
+    private int length;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count;
+
+    CsvReader(Reader in, char delim) {
+        this.in = in;
+        this.delim = delim;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            int c = read();
+            if (c < 0) return false;
+            if (c == '\r' || c == '\n') {   // blank line
+                endOfLine(c);
+                continue;
+            }
+            unread();
+            parseRecord();
+            if (count > 1 || ends[0] > starts[0]) return true;
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public String get(int i) {
+        if (i < 0 || i >= count) return "";
+        int s = starts[i], e = ends[i];
+        if (e - s >= 2 && cells[s] == '\'' && cells[e - 1] == '\'') {
+            s++; e--;
+            while (s < e && cells[s] <= ' ') s++;
+            while (e > s && cells[e - 1] <= ' ') e--;
+        }
+        return new String(cells, s, e - s);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // --- parser ---
+
+    private void parseRecord() throws IOException {
+        length = 0;
+        count = 0;
+        while (true) {
+            int c = read();
+            while (c == ' ' || c == '\t' && delim != '\t') c = read();   // leading blanks
+
+            int start = length;
+            boolean quoted = false;
+            if (c == '"') {
+                quoted = true;
+                c = readQuoted();
+            }
+            while (c >= 0 && c != delim && c != '\r' && c != '\n') {
+                if (!quoted) append((char) c);   // after a closing quote only blanks are expected
+                c = read();
+            }
+            int end = length;
+            if (!quoted) {
+                while (end > start && cells[end - 1] <= ' ') end--;
+            }
+            addCell(start, end);
+
+            if (c == delim) continue;
+            if (c >= 0) endOfLine(c);
+            return;
+        }
+    }
+
+    // Called after the opening quote; returns the first char after the closing one.
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c < 0) return c;   // unterminated: keep what we have
+            if (c == '"') {
+                c = read();
+                if (c != '"') return c;
+            }
+            append((char) c);
+        }
+    }
+
+    private void endOfLine(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') read();
+    }
+
+    private void addCell(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    private void append(char ch) {
+        if (length == cells.length) cells = Arrays.copyOf(cells, length * 2);
+        cells[length++] = ch;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return chunk[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return chunk[pos];
+    }
+
+    private void unread() {
+        pos--;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(chunk, 0, chunk.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+package dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** A CSV source read one record at a time (see CsvReader, MappedCsv). */
+interface CsvRecords extends Closeable {
+
+    /** Moves to the next non-blank record; false at end of input. */
+    boolean next() throws IOException;
+
+    /** Number of cells in the current record. */
+    int size();
+
+    /** Cell i of the current record, trimmed, or "" if the record is shorter. */
+    String get(int i);
+}
@@ -0,0 +1,264 @@
+package dao;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings for the DAO interfaces, recorded by wrapping them (instrument()) so the DAOs
+ * themselves stay unaware of it.
+ * - Per method: calls, errors, rows returned and a latency histogram (p50/p95/p99/max)
+ * - Calls slower than the threshold go to a bounded log with their arguments;
+ *   parameters marked @Sensitive are written as ***
+ * - Async methods are timed until their future completes, i.e. until the commit
+ * - Recording is lock-free apart from the slow log, so the wrapper costs well under
+ *   a microsecond per call
+ */
+public final class DaoMetrics {
+    /** One method's numbers, latencies in ms. */
+    public record MethodStats(String method, long calls, long errors, long rows,
+                              double meanMs, double p50Ms, double p95Ms, double p99Ms, double maxMs) { }
+
+    /** A call that took longer than the slow threshold. */
+    public record SlowCall(Instant at, String method, double ms, String args, String error) { }
+
+    private static final int MAX_ARG_CHARS = 40;
+
+    private final long slowNanos;
+    private final int slowLogSize;
+    private final ConcurrentHashMap<Method, Stats> byMethod = new ConcurrentHashMap<>();
+    private final ArrayDeque<SlowCall> slowLog = new ArrayDeque<>();   // newest last; guarded by itself
+    private volatile ScheduledExecutorService exporter;
+
+    public DaoMetrics(Duration slowThreshold, int slowLogSize) {
+        this.slowNanos = slowThreshold.toNanos();
+        this.slowLogSize = slowLogSize;
+    }
+
+    /** A type that forwards every call to target and records it here under "Type.method". */
+    public static <T> T instrument(Class<T> type, T target, DaoMetrics metrics) {
+        InvocationHandler h = (proxy, method, args) -> metrics.invoke(type, target, method, args);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, h));
+    }
+
+    public List<MethodStats> snapshot() {
+        List<MethodStats> out = new ArrayList<>();
+        for (Stats s : byMethod.values()) out.add(s.snapshot());
+        out.sort(Comparator.comparingDouble((MethodStats m) -> m.meanMs() * m.calls()).reversed());
+        return out;
+    }
+
+    /** The slow calls still in the log, newest first. */
+    public List<SlowCall> slowCalls() {
+        synchronized (slowLog) {
+            List<SlowCall> out = new ArrayList<>(slowLog);
+            Collections.reverse(out);
+            return out;
+        }
+    }
+
+    public void reset() {
+        byMethod.clear();
+        synchronized (slowLog) { slowLog.clear(); }
+    }
+
+    /** Writes the current numbers and slow log as a text report; the file is replaced whole. */
+    public void exportTo(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write("DAO metrics at " + Instant.now() + "\n\n");
+            w.write(String.format("%-48s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+                    "method", "calls", "errors", "rows", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+            for (MethodStats m : snapshot()) {
+                w.write(String.format("%-48s %9d %7d %10d %9.3f %9.3f %9.3f %9.3f %9.3f%n", m.method(), m.calls(),
+                        m.errors(), m.rows(), m.meanMs(), m.p50Ms(), m.p95Ms(), m.p99Ms(), m.maxMs()));
+            }
+            w.write(String.format("%nSlow calls (over %d ms), newest first%n", slowNanos / 1_000_000));
+            for (SlowCall c : slowCalls()) {
+                w.write(String.format("%s  %9.3f ms  %s(%s)%s%n", c.at(), c.ms(), c.method(), c.args(),
+                        c.error() == null ? "" : "  failed: " + c.error()));
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Re-exports to file every period from a daemon thread, until stopExporting(). */
+    public synchronized void exportEvery(Path file, Duration period) {
+        stopExporting();
+        exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dao-metrics-export");
+            t.setDaemon(true);
+            return t;
+        });
+        exporter.scheduleAtFixedRate(() -> {
+            try {
+                exportTo(file);
+            } catch (IOException e) {
+                System.getLogger(DaoMetrics.class.getName())
+                      .log(System.Logger.Level.WARNING, "metrics export to " + file + " failed", e);
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopExporting() {
+        if (exporter != null) exporter.shutdownNow();
+        exporter = null;
+    }
+
+    // --- recording ---
+
+    private Object invoke(Class<?> type, Object target, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) return method.invoke(target, args);
+        long t0 = System.nanoTime();
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            record(type, method, args, t0, null, e.getCause());
+            throw e.getCause();
+        }
+        if (result instanceof CompletableFuture<?> f) {
+            f.whenComplete((v, err) -> record(type, method, args, t0, v, err));
+        } else {
+            record(type, method, args, t0, result, null);
+        }
+        return result;
+    }
+
+    private void record(Class<?> type, Method method, Object[] args, long t0, Object result, Throwable error) {
+        long nanos = System.nanoTime() - t0;
+        Stats stats = byMethod.computeIfAbsent(method, m -> new Stats(type.getSimpleName() + "." + m.getName()));
+        stats.add(nanos, rows(result), error != null);
+        if (nanos >= slowNanos) {
+            SlowCall c = new SlowCall(Instant.now(), stats.name, nanos / 1e6, render(method, args),
+                                      error == null ? null : String.valueOf(error.getMessage()));
+            synchronized (slowLog) {
+                slowLog.addLast(c);
+                if (slowLog.size() > slowLogSize) slowLog.removeFirst();
+            }
+        }
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Collection<?> c) return c.size();
+        if (result instanceof ProjectDao.Page p) return p.rows().size();
+        if (result instanceof RegistrationDao.Page p) return p.rows().size();
+        return 0;
+    }
+
+    private static String render(Method method, Object[] args) {
+        if (args == null) return "";
+        Annotation[][] marks = method.getParameterAnnotations();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) sb.append(", ");
+            Object a = args[i];
+            if (sensitive(marks[i])) sb.append("***");
+            else if (a instanceof String s) sb.append('"').append(clip(s)).append('"');
+            else if (a instanceof Collection<?> c) sb.append('[').append(c.size()).append(" items]");
+            else sb.append(clip(String.valueOf(a)));
+        }
+        return sb.toString();
+    }
+
+    private static boolean sensitive(Annotation[] marks) {
+        for (Annotation m : marks) if (m instanceof Sensitive) return true;
+        return false;
+    }
+
+    private static String clip(String s) {
+        return s.length() <= MAX_ARG_CHARS ? s : s.substring(0, MAX_ARG_CHARS) + "…";
+    }
+
+    /**
+     * Counters for one method. The histogram buckets are in µs: 0-3 one each, then four
+     * per power of two, so a percentile is within about 12% of the true value.
+     */
+    private static final class Stats {
+        private static final int BUCKETS = 4 + 4 * 40;
+
+        final String name;
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        void add(long nanos, long rowCount, boolean failed) {
+            calls.increment();
+            if (failed) errors.increment();
+            rows.add(rowCount);
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            histogram.incrementAndGet(bucket(nanos / 1_000));
+        }
+
+        MethodStats snapshot() {
+            long n = calls.sum();
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) total += counts[i] = histogram.get(i);
+            double max = maxNanos.get() / 1e6;
+            return new MethodStats(name, n, errors.sum(), rows.sum(),
+                    n == 0 ? 0 : totalNanos.sum() / 1e6 / n,
+                    Math.min(max, percentile(counts, total, 0.50)),
+                    Math.min(max, percentile(counts, total, 0.95)),
+                    Math.min(max, percentile(counts, total, 0.99)), max);
+        }
+
+        static int bucket(long micros) {
+            if (micros < 4) return (int) Math.max(0, micros);
+            int exp = 63 - Long.numberOfLeadingZeros(micros);   // >= 2
+            int sub = (int) (micros >>> (exp - 2)) & 3;
+            return Math.min(BUCKETS - 1, 4 + (exp - 2) * 4 + sub);
+        }
+
+        // the middle of the bucket the p-th call falls in, in ms
+        static double percentile(long[] counts, long total, double p) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return middle(i) / 1_000.0;
+            }
+            return middle(counts.length - 1) / 1_000.0;
+        }
+
+        static double middle(int bucket) {
+            if (bucket < 4) return bucket + 0.5;
+            int exp = (bucket - 4) / 4 + 2, sub = (bucket - 4) % 4;
+            double lo = (double) (4 + sub) * (1L << (exp - 2));
+            return lo + (1L << (exp - 2)) / 2.0;
+        }
+    }
+}
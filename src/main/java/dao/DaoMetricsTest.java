@@ -0,0 +1,61 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import util.PasswordHasher;
+import util.PasswordScheme;
+import util.Pbkdf2Scheme;
+
+public class DaoMetricsTest {
+    private static PasswordScheme before;
+
+    @BeforeAll
+    static void freshSchema() throws Exception {
+        before = PasswordHasher.scheme();
+        PasswordHasher.use(new Pbkdf2Scheme(1_000));
+        TestDb.open("dao-metrics");
+    }
+
+    @AfterAll
+    static void cleanup() {
+        PasswordHasher.use(before);
+        TestDb.close();
+    }
+
+    @Test
+    void callsErrorsAndRowsAreCountedAndPasswordsMasked() throws Exception {
+        DaoMetrics metrics = new DaoMetrics(Duration.ZERO, 10);   // every call counts as slow
+        UserDao users = DaoMetrics.instrument(UserDao.class, new UserDaoImpl(), metrics);
+        CartDao carts = DaoMetrics.instrument(CartDao.class, new CartDaoImpl(), metrics);
+
+        users.createUser("Pat", "pat", "pat@example.com", "Hunter2!x");
+        assertThrows(SQLException.class, () -> users.createUser("Pat", "pat", "other@example.com", "Hunter2!x"));
+        assertEquals(0, carts.listCart("pat").size());
+
+        var create = metrics.snapshot().stream().filter(m -> m.method().equals("UserDao.createUser")).findFirst().orElseThrow();
+        assertEquals(2, create.calls());
+        assertEquals(1, create.errors());
+        assertTrue(create.p50Ms() <= create.maxMs());
+        assertTrue(metrics.snapshot().stream().anyMatch(m -> m.method().equals("CartDao.listCart")));
+
+        var logged = metrics.slowCalls();
+        assertEquals("CartDao.listCart", logged.get(0).method());
+        assertEquals("\"Pat\", \"pat\", \"other@example.com\", ***", logged.get(1).args());
+        assertEquals("Username already exists", logged.get(1).error());
+
+        File out = File.createTempFile("dao-metrics", ".txt");
+        metrics.exportTo(out.toPath());
+        String report = Files.readString(out.toPath());
+        assertTrue(report.contains("UserDao.createUser"), report);
+        assertFalse(report.contains("Hunter2"), report);
+        out.delete();
+    }
+}
@@ -2,24 +2,159 @@ package dao;
 
 import java.io.File;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Connection source for application.db.
+ * - The database runs in WAL mode, so readers never block on a writer
+ * - One dedicated writer connection: every INSERT/UPDATE/DELETE goes through it
+ * - A pool of query_only reader connections serves SELECTs
+ * - Writes that meet another process's lock are retried by transactions() (see TxExecutor)
+ */
 public class Database {
-    private static final String DB_FILENAME = "application.db";
-    private static final String DB_URL = "jdbc:sqlite:" + DB_FILENAME;
+    private static final String DEFAULT_DB_FILENAME = "application.db";
 
+    // pool sizing
+    private static final int READER_POOL_SIZE = 8;
+    private static final long MAX_WAIT_MILLIS = 10_000;
+    private static final long VALIDATE_AFTER_MILLIS = 30_000;
+
+    // group commit (see WriteQueue)
+    private static final int WRITE_BATCH = 64;
+    private static final long WRITE_FLUSH_MILLIS = 2;
+    private static final int WRITE_MAX_PENDING = 10_000;
+
+    // contention: SQLite waits up to BUSY_TIMEOUT_MILLIS per attempt, TxExecutor retries until the deadline
+    private static final long BUSY_TIMEOUT_MILLIS = 1_000;
+    private static final Duration WRITE_DEADLINE = Duration.ofSeconds(10);
+    private static final Duration FIRST_RETRY_PAUSE = Duration.ofMillis(5);
+    private static final Duration MAX_RETRY_PAUSE = Duration.ofMillis(500);
+    private static final TxExecutor TRANSACTIONS =
+            new TxExecutor(WRITE_DEADLINE, FIRST_RETRY_PAUSE, MAX_RETRY_PAUSE, BUSY_TIMEOUT_MILLIS);
+
+    // applied once per physical connection
+    private static final List<String> COMMON_PRAGMAS = List.of(
+        "foreign_keys = ON",
+        "busy_timeout = " + BUSY_TIMEOUT_MILLIS,
+        "temp_store = MEMORY",
+        "synchronous = NORMAL",          // durable in WAL mode; fsync only at checkpoints
+        "cache_size = -16000",           // 16 MB page cache per connection
+        "mmap_size = 268435456"          // 256 MB memory-mapped reads
+    );
+    private static final List<String> WRITER_PRAGMAS = List.of("journal_mode = WAL");
+    private static final List<String> READER_PRAGMAS = List.of("query_only = ON");
+
+    private record Pools(ConnectionPool writer, ConnectionPool readers) { }
+
+    private static volatile String dbFilename = DEFAULT_DB_FILENAME;
+    private static volatile Pools pools;
+    private static volatile WriteQueue writeQueue;
+
+    /** Writer connection; same as {@link #getWriteConnection()}. */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        return getWriteConnection();
+    }
+
+    /** The single writer. Hold it only for the length of one write/transaction. */
+    public static Connection getWriteConnection() throws SQLException {
+        return pools().writer().borrow();
+    }
+
+    /** A query_only reader; sees the last committed snapshot, never waits on the writer. */
+    public static Connection getReadConnection() throws SQLException {
+        return pools().readers().borrow();
+    }
+
+    /** Shared group-commit queue for small, frequent writes. */
+    public static WriteQueue writeQueue() {
+        WriteQueue q = writeQueue;
+        if (q != null) return q;
+        synchronized (Database.class) {
+            if (writeQueue == null) {
+                writeQueue = new WriteQueue(WRITE_BATCH, WRITE_FLUSH_MILLIS, WRITE_MAX_PENDING, TRANSACTIONS);
+            }
+            return writeQueue;
+        }
+    }
+
+    /** Runs writes on the writer, retrying them while another connection holds the lock. */
+    public static TxExecutor transactions() {
+        return TRANSACTIONS;
+    }
+
+    public static PoolStats writerStats() {
+        return pools().writer().stats();
+    }
+
+    public static PoolStats readerStats() {
+        return pools().readers().stats();
+    }
+
+    /** Closes pooled connections, e.g. on application exit. */
+    public static synchronized void shutdown() {
+        if (writeQueue != null) {
+            writeQueue.close();   // flush queued writes while the writer is still open
+            writeQueue = null;
+        }
+        if (pools != null) {
+            pools.readers().close();
+            pools.writer().close();
+            pools = null;
+        }
+    }
+
+    /** Points the DAO layer at another database file (benchmarks, tests). */
+    public static synchronized void useFile(String filename) {
+        shutdown();
+        dbFilename = filename;
+    }
+
+    private static Pools pools() {
+        Pools p = pools;
+        if (p != null) return p;
+        synchronized (Database.class) {
+            if (pools == null) pools = openPools();
+            return pools;
+        }
+    }
+
+    private static Pools openPools() {
+        String url = "jdbc:sqlite:" + dbFilename;
+        ConnectionPool writer = new ConnectionPool(url, 1, MAX_WAIT_MILLIS, VALIDATE_AFTER_MILLIS,
+                concat(WRITER_PRAGMAS, COMMON_PRAGMAS));
+        ConnectionPool readers = new ConnectionPool(url, READER_POOL_SIZE, MAX_WAIT_MILLIS, VALIDATE_AFTER_MILLIS,
+                concat(COMMON_PRAGMAS, READER_PRAGMAS));
+
+        // open the writer first so the file is switched to WAL before any reader attaches
+        try {
+            writer.borrow().close();   // back to the pool, still open
+        } catch (SQLException e) {
+            writer.close();
+            readers.close();
+            throw new IllegalStateException("Cannot open database " + dbFilePath(), e);
+        }
+        return new Pools(writer, readers);
+    }
+
+    private static List<String> concat(List<String> a, List<String> b) {
+        List<String> out = new ArrayList<>(a);
+        out.addAll(b);
+        return out;
     }
 
     // --- helpers for troubleshooting ---
     public static String dbFilePath() {
-        return new File(DB_FILENAME).getAbsolutePath();
+        return new File(dbFilename).getAbsolutePath();
     }
 
     public static boolean deleteDbFile() {
-        File f = new File(DB_FILENAME);
+        shutdown(); // pooled connections keep the file open
+        new File(dbFilename + "-wal").delete();
+        new File(dbFilename + "-shm").delete();
+        File f = new File(dbFilename);
         return f.exists() && f.delete();
     }
 }
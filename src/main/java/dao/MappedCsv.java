@@ -0,0 +1,250 @@
+package dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A CSV/TSV file on disk, memory-mapped and parsed straight from its UTF-8 bytes.
+ * - A leading UTF-8 BOM is skipped; headerLine() gives the first line for delimiter detection
+ * - split() cuts the body into ranges that start and end on line breaks, so several
+ *   threads can each parse one range with records()
+ * - Same cell rules as CsvReader (quotes, "" escapes, trimming, single quotes)
+ *
+ * A range is cut at a plain line break, so a quoted cell holding a line break must not
+ * straddle two ranges; records() reports that as an error rather than guessing.
+ * Mapped regions are released by the GC, not by close().
+ */
+final class MappedCsv implements Closeable {
+    // one mapping must fit in an int-indexed buffer; keep well below that
+    private static final long MAX_RANGE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long headerStart;   // after the BOM, if any
+    private final long bodyStart;     // after the header line
+    private final String headerLine;
+
+    private MappedCsv(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(size, 1 << 16));
+        channel.read(head, 0);
+        byte[] b = head.array();
+        int n = head.position();
+        int s = (n >= 3 && (b[0] & 0xFF) == 0xEF && (b[1] & 0xFF) == 0xBB && (b[2] & 0xFF) == 0xBF) ? 3 : 0;
+        int e = s;
+        while (e < n && b[e] != '\n' && b[e] != '\r') e++;
+        this.headerStart = s;
+        this.headerLine = new String(b, s, e - s, StandardCharsets.UTF_8);
+        this.bodyStart = Math.min(size, lineEnd(e));
+    }
+
+    static MappedCsv open(Path file) throws IOException {
+        return new MappedCsv(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    long size() {
+        return size;
+    }
+
+    /** The header line, BOM removed. */
+    String headerLine() {
+        return headerLine;
+    }
+
+    /** Parses the header line only. */
+    CsvRecords header(char delim) throws IOException {
+        return records(headerStart, bodyStart, delim);
+    }
+
+    /**
+     * Splits the body (everything after the header) into at most parts ranges of
+     * about equal size, each starting right after a line break. Ranges larger than
+     * one mapping allows are split further.
+     */
+    List<long[]> split(int parts) throws IOException {
+        long body = size - bodyStart;
+        parts = (int) Math.max(Math.max(1, parts), (body + MAX_RANGE - 1) / MAX_RANGE);
+        List<long[]> out = new ArrayList<>(parts);
+        long from = bodyStart;
+        for (int i = 1; i <= parts && from < size; i++) {
+            long to = i == parts ? size : Math.max(from, nextLineStart(bodyStart + body * i / parts));
+            if (to > from) out.add(new long[] { from, to });
+            from = to;
+        }
+        return out;
+    }
+
+    /** Records of the byte range [from, to), which must start at a line start. */
+    CsvRecords records(long from, long to, char delim) throws IOException {
+        if (to - from > MAX_RANGE) throw new IOException("Range too large to map: " + (to - from) + " bytes");
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        return new Range(buf, delim, to == size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // first byte after the line break that ends at or after pos
+    private long nextLineStart(long pos) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(1 << 16);
+        while (pos < size) {
+            window.clear();
+            int n = channel.read(window, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (window.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    // position after the line break starting at i in the header probe (CRLF, LF or CR)
+    private long lineEnd(int i) throws IOException {
+        if (i >= size) return size;
+        ByteBuffer two = ByteBuffer.allocate(2);
+        channel.read(two, i);
+        return (two.get(0) == '\r' && two.position() > 1 && two.get(1) == '\n') ? i + 2 : i + 1;
+    }
+
+    // --- parser over one mapped range ---
+
+    private static final class Range implements CsvRecords {
+        private final MappedByteBuffer buf;
+        private final char delim;
+        private final boolean lastRange;
+        private final int limit;
+        private int pos;
+
+        private byte[] cells = new byte[256];
+        private int length;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int count;
+
+        Range(MappedByteBuffer buf, char delim, boolean lastRange) {
+            this.buf = buf;
+            this.delim = delim;
+            this.lastRange = lastRange;
+            this.limit = buf.limit();
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            while (pos < limit) {
+                int c = buf.get(pos);
+                if (c == '\r' || c == '\n') {   // blank line
+                    pos++;
+                    endOfLine(c);
+                    continue;
+                }
+                parseRecord();
+                if (count > 1 || ends[0] > starts[0]) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public String get(int i) {
+            if (i < 0 || i >= count) return "";
+            int s = starts[i], e = ends[i];
+            if (e - s >= 2 && cells[s] == '\'' && cells[e - 1] == '\'') {
+                s++; e--;
+                while (s < e && (cells[s] & 0xFF) <= ' ') s++;
+                while (e > s && (cells[e - 1] & 0xFF) <= ' ') e--;
+            }
+            return new String(cells, s, e - s, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+            // nothing to release: the mapping goes with the buffer
+        }
+
+        private void parseRecord() throws IOException {
+            length = 0;
+            count = 0;
+            while (true) {
+                int c = read();
+                while (c == ' ' || c == '\t' && delim != '\t') c = read();   // leading blanks
+
+                int start = length;
+                boolean quoted = false;
+                if (c == '"') {
+                    quoted = true;
+                    c = readQuoted();
+                }
+                while (c >= 0 && c != delim && c != '\r' && c != '\n') {
+                    if (!quoted) append((byte) c);   // after a closing quote only blanks are expected
+                    c = read();
+                }
+                int end = length;
+                if (!quoted) {
+                    while (end > start && (cells[end - 1] & 0xFF) <= ' ') end--;
+                }
+                addCell(start, end);
+
+                if (c == delim) continue;
+                if (c >= 0) endOfLine(c);
+                return;
+            }
+        }
+
+        // Called after the opening quote; returns the first byte after the closing one.
+        private int readQuoted() throws IOException {
+            while (true) {
+                int c = read();
+                if (c < 0) {
+                    if (!lastRange) throw new IOException("Quoted cell runs past a split point; import with one worker");
+                    return c;   // unterminated at end of file: keep what we have
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') return c;
+                }
+                append((byte) c);
+            }
+        }
+
+        private void endOfLine(int c) {
+            if (c == '\r' && pos < limit && buf.get(pos) == '\n') pos++;
+        }
+
+        private int read() {
+            return pos < limit ? buf.get(pos++) & 0xFF : -1;
+        }
+
+        private void addCell(int start, int end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        private void append(byte b) {
+            if (length == cells.length) cells = Arrays.copyOf(cells, length * 2);
+            cells[length++] = b;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package dao;
+
+// point-in-time view of the connection pool, for sizing it
+public record PoolStats(
+        int active,           // borrowed right now
+        int idle,             // open and waiting to be reused
+        int open,             // physical connections (active + idle)
+        int maxSize,
+        long borrows,
+        long timeouts,        // callers that gave up waiting
+        double avgWaitMillis,
+        double maxWaitMillis
+) {}
@@ -0,0 +1,29 @@
+package dao;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Tells in-memory views of the projects table (e.g. the model's catalog cache)
+ * which project ids a committed write touched.
+ * Listeners run on the writing thread, so keep them short.
+ */
+public final class ProjectChangeBus {
+    private final CopyOnWriteArrayList<Consumer<Set<Integer>>> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<Set<Integer>> listener) {
+        listeners.add(listener);
+    }
+
+    public void publish(Set<Integer> projectIds) {
+        if (projectIds.isEmpty()) return;
+        Set<Integer> ids = Set.copyOf(projectIds);
+        for (Consumer<Set<Integer>> l : listeners) l.accept(ids);
+    }
+
+    /** For bulk writes that don't track ids: listeners get an empty set, meaning "anything may have changed". */
+    public void publishAll() {
+        for (Consumer<Set<Integer>> l : listeners) l.accept(Set.of());
+    }
+}
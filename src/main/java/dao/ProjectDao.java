@@ -5,5 +5,11 @@
 	import model.Project;
 	
 	public interface ProjectDao {
+	    /** One page of a query; more is true if rows follow it. */
+	    record Page(List<Project> rows, boolean more) { }
+	
 	    List<Project> loadAll() throws IOException;
+	
+	    // filtered, ordered and paged where the projects live, so callers only hold one page
+	    Page query(ProjectQuery q) throws IOException;
 	}
@@ -5,79 +5,237 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 import model.Project;
 
 /**
  * Flexible CSV/TSV loader for Assignment CSV.
+ * - Streams the file (see forEachBatch); quoted cells may hold delimiters
+ * - Reads a classpath resource, or a file on disk (memory-mapped, see MappedCsv)
  * - Auto-detects delimiter: comma, semicolon, or tab
  * - Accepts headers in any order and with assignment wording:
  *   "PROJECT TITLE", "LOCATION", "DAY", "HOURLY VALUE (AUD)",
- *   "#REGISTERED SLOTS", "#TOTAL SLOTS"
+ *   "#REGISTERED SLOTS", "#TOTAL SLOTS"; an optional "ACTIVE" column (1/0, yes/no,
+ *   true/false) is read too, and rows without one are active
  */
 public class ProjectDaoCsv implements ProjectDao {
+    // below this a file is parsed by one thread whatever workers says
+    private static final long PARALLEL_MIN_BYTES = 8L << 20;
+    // a parallel import ends each worker's stream with this (compared by identity)
+    private static final List<Project> END = new ArrayList<>();
+
     private final String resourcePath;
+    private final Path file;
+    private final int workers;
 
     public ProjectDaoCsv(String resourcePath) { // e.g. "/data/projects.csv"
         this.resourcePath = resourcePath;
+        this.file = null;
+        this.workers = 1;
+    }
+
+    /**
+     * Reads a file from disk instead of the classpath, memory-mapped. Files of a few MB
+     * and up are split on line breaks and parsed by up to {@code workers} threads; rows
+     * then reach the sink in no particular order.
+     */
+    public ProjectDaoCsv(Path file, int workers) {
+        this.resourcePath = null;
+        this.file = file;
+        this.workers = Math.max(1, workers);
+    }
+
+    public ProjectDaoCsv(Path file) {
+        this(file, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Receives parsed projects a batch at a time. The list may be reused: copy what you keep. */
+    @FunctionalInterface
+    public interface BatchSink {
+        void accept(List<Project> batch) throws SQLException;
     }
 
     @Override
     public List<Project> loadAll() throws IOException {
+        List<Project> out = new ArrayList<>();
+        try {
+            forEachBatch(4096, out::addAll);
+        } catch (SQLException e) {
+            throw new IOException(e);   // out::addAll never throws one
+        }
+        return out;
+    }
+
+    // the file has no indexes: scanned in full, filtered and sorted in memory
+    @Override
+    public Page query(ProjectQuery q) throws IOException {
+        List<Project> rows = loadAll().stream().filter(q::matches).sorted(q.order())
+                .skip(q.offset()).limit(q.limit() + 1L).toList();
+        boolean more = rows.size() > q.limit();
+        return new Page(more ? rows.subList(0, q.limit()) : rows, more);
+    }
+
+    /**
+     * Streams the file through sink in batches of at most batchSize projects, so
+     * memory stays bounded whatever the file size. Returns the number of projects read.
+     * The sink is always called on the calling thread.
+     */
+    public long forEachBatch(int batchSize, BatchSink sink) throws IOException, SQLException {
+        if (file != null) return forEachBatchMapped(batchSize, sink);
+
         InputStream is = ProjectDaoCsv.class.getResourceAsStream(resourcePath);
         if (is == null) {
             throw new IOException("CSV not found on classpath: " + resourcePath);
         }
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 1 << 16)) {
+            // Handle UTF-8 BOM
+            br.mark(1);
+            if (br.read() != '\uFEFF') br.reset();
+
+            // Detect delimiter from header, then hand the same text to the parser
+            br.mark(1 << 16);
             String header = br.readLine();
-            if (header == null) return List.of();
+            if (header == null) return 0;
+            char delim = detectDelimiter(header.trim());
+            br.reset();
 
-            // Handle UTF-8 BOM and normalize
-            header = header.replace("\uFEFF", "").trim();
+            try (CsvReader csv = new CsvReader(br, delim)) {
+                if (!csv.next()) return 0;
+                return drain(csv, Columns.of(csv), batchSize, sink);
+            }
+        }
+    }
 
-            // Detect delimiter from header
-            char delim = detectDelimiter(header);
+    private long forEachBatchMapped(int batchSize, BatchSink sink) throws IOException, SQLException {
+        try (MappedCsv csv = MappedCsv.open(file)) {
+            char delim = detectDelimiter(csv.headerLine().trim());
+            Columns cols;
+            try (CsvRecords header = csv.header(delim)) {
+                if (!header.next()) return 0;
+                cols = Columns.of(header);
+            }
 
-            String[] headerCells = splitSmart(header, delim);
+            int n = csv.size() < PARALLEL_MIN_BYTES ? 1 : workers;
+            List<long[]> ranges = csv.split(n);
+            long rows = 0;
+            if (ranges.size() == 1) {
+                try (CsvRecords body = csv.records(ranges.get(0)[0], ranges.get(0)[1], delim)) {
+                    rows = drain(body, cols, batchSize, sink);
+                }
+            } else {
+                rows = drainParallel(csv, ranges, delim, cols, batchSize, sink);
+            }
+            return rows;
+        }
+    }
+
+    private static long drain(CsvRecords csv, Columns cols, int batchSize, BatchSink sink)
+            throws IOException, SQLException {
+        List<Project> batch = new ArrayList<>(batchSize);
+        long rows = 0;
+        while (csv.next()) {
+            batch.add(cols.read(csv));
+            rows++;
+            if (batch.size() == batchSize) {
+                sink.accept(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) sink.accept(batch);
+        return rows;
+    }
+
+    // Workers parse one range each into fresh batches; this thread hands them to the sink.
+    // The queue is bounded, so a slow sink (the DB) holds the parsers back.
+    private static long drainParallel(MappedCsv csv, List<long[]> ranges, char delim, Columns cols,
+                                      int batchSize, BatchSink sink) throws IOException, SQLException {
+        BlockingQueue<List<Project>> queue = new ArrayBlockingQueue<>(ranges.size() * 2);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        ExecutorService pool = Executors.newFixedThreadPool(ranges.size());
+        try {
+            for (long[] r : ranges) {
+                pool.execute(() -> {
+                    try (CsvRecords body = csv.records(r[0], r[1], delim)) {
+                        List<Project> batch = new ArrayList<>(batchSize);
+                        while (body.next()) {
+                            batch.add(cols.read(body));
+                            if (batch.size() == batchSize) {
+                                queue.put(batch);
+                                batch = new ArrayList<>(batchSize);
+                            }
+                        }
+                        if (!batch.isEmpty()) queue.put(batch);
+                    } catch (IOException | RuntimeException e) {
+                        failure.compareAndSet(null, e instanceof IOException io ? io : new IOException(e));
+                    } catch (InterruptedException e) {
+                        return;   // the import was abandoned
+                    }
+                    try {
+                        queue.put(END);
+                    } catch (InterruptedException e) {
+                        // abandoned
+                    }
+                });
+            }
+
+            long rows = 0;
+            int ended = 0;
+            while (ended < ranges.size()) {
+                List<Project> batch = queue.take();
+                if (batch == END) { ended++; continue; }
+                if (failure.get() != null) continue;   // keep draining so workers can finish
+                sink.accept(batch);
+                rows += batch.size();
+            }
+            if (failure.get() != null) throw failure.get();
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Which column holds which field, resolved once from the header.
+    private record Columns(int title, int location, int day, int hourly, int total, int registered, int active) {
+
+        static Columns of(CsvRecords header) throws IOException {
+            String[] headerCells = new String[header.size()];
+            for (int i = 0; i < headerCells.length; i++) headerCells[i] = header.get(i);
             Map<String, Integer> idx = indexByName(headerCells);
 
             // Map required logical fields -> actual column index
-            Integer iTitle = require(idx, "title");
-            Integer iLoc   = require(idx, "location");
-            Integer iDay   = require(idx, "day");
-            Integer iHourly= require(idx, "hourly_value");
-            Integer iTotal = require(idx, "total_slots");
-            Integer iReg   = require(idx, "registered_slots");
-
-            List<Project> out = new ArrayList<>();
-            String line;
-            int row = 1;
-            while ((line = br.readLine()) != null) {
-                row++;
-                if (line.isBlank()) continue;
-
-                String[] t = splitSmart(line, delim);
-
-                String title    = cell(t, iTitle);
-                String location = cell(t, iLoc);
-                String day      = cell(t, iDay);
-                double hourly   = parseDouble(cell(t, iHourly), 0);
-                int total       = parseInt(cell(t, iTotal), 0);
-                int registered  = parseInt(cell(t, iReg), 0);
-
-                // Safety: if CSV had total/registered swapped, correct it
-                if (registered > total && total > 0) {
-                    int tmp = total; total = registered; registered = tmp;
-                }
+            return new Columns(
+                require(idx, "title"),
+                require(idx, "location"),
+                require(idx, "day"),
+                require(idx, "hourly_value"),
+                require(idx, "total_slots"),
+                require(idx, "registered_slots"),
+                idx.getOrDefault("active", -1));
+        }
 
-                out.add(new Project(title, location, day, hourly, total, registered));
-            }
+        Project read(CsvRecords r) {
+            double hourly   = parseDouble(r.get(this.hourly), 0);
+            int total       = parseInt(r.get(this.total), 0);
+            int registered  = parseInt(r.get(this.registered), 0);
 
-            System.out.printf("Loaded %d projects from %s (delim='%s')%n",
-                    out.size(), resourcePath, delimInfo(delim));
-            return out;
+            // Safety: if CSV had total/registered swapped, correct it
+            if (registered > total && total > 0) {
+                int tmp = total; total = registered; registered = tmp;
+            }
+            boolean isActive = active < 0 || parseFlag(r.get(active), true);
+            return new Project(0, r.get(title), r.get(location), r.get(day), hourly, total, registered, isActive);
         }
     }
 
@@ -97,24 +255,6 @@ public class ProjectDaoCsv implements ProjectDao {
         int n = 0; for (int i = 0; i < s.length(); i++) if (s.charAt(i) == ch) n++; return n;
     }
 
-    private static String[] splitSmart(String line, char delim) {
-        // Simple split that also trims surrounding quotes/spaces from each cell
-        String[] raw = line.split("\\Q" + delim + "\\E", -1);
-        String[] out = new String[raw.length];
-        for (int i = 0; i < raw.length; i++) {
-            out[i] = unquote(raw[i].trim());
-        }
-        return out;
-    }
-
-    private static String unquote(String s) {
-        if (s.length() >= 2 && ((s.startsWith("\"") && s.endsWith("\"")) ||
-                                (s.startsWith("'") && s.endsWith("'")))) {
-            return s.substring(1, s.length() - 1).trim();
-        }
-        return s;
-    }
-
     private static Map<String, Integer> indexByName(String[] headersRaw) {
         Map<String, Integer> out = new HashMap<>();
         for (int i = 0; i < headersRaw.length; i++) {
@@ -127,6 +267,7 @@ public class ProjectDaoCsv implements ProjectDao {
                 case "hourly_value", "hourly value (aud)", "hourly value" -> out.put("hourly_value", i);
                 case "total_slots", "#total slots", "total slots" -> out.put("total_slots", i);
                 case "registered_slots", "#registered slots", "registered slots" -> out.put("registered_slots", i);
+                case "active", "is_active", "active (1/0)" -> out.put("active", i);
                 default -> { /* ignore others */ }
             }
         }
@@ -141,27 +282,36 @@ public class ProjectDaoCsv implements ProjectDao {
         return h;
     }
 
-    private static Integer require(Map<String, Integer> idx, String key) throws IOException {
+    private static int require(Map<String, Integer> idx, String key) throws IOException {
         Integer i = idx.get(key);
         if (i == null || i < 0) throw new IOException("CSV missing required column: " + key);
         return i;
     }
 
-    private static String cell(String[] arr, int i) {
-        return (i >= 0 && i < arr.length) ? arr[i].trim() : "";
-    }
-
     private static int parseInt(String s, int d) {
         if (s == null || s.isBlank()) return d;
-        s = s.replace("$", "").replace(",", "").trim();
+        s = stripMoney(s);
         try { return Integer.parseInt(s); } catch (Exception e) { return d; }
     }
 
     private static double parseDouble(String s, double d) {
         if (s == null || s.isBlank()) return d;
-        s = s.replace("$", "").replace(",", "").trim();
+        s = stripMoney(s);
         try { return Double.parseDouble(s); } catch (Exception e) { return d; }
     }
 
-    private static String delimInfo(char d) { return d == '\t' ? "\\t" : Character.toString(d); }
+    private static boolean parseFlag(String s, boolean d) {
+        if (s == null || s.isBlank()) return d;
+        return switch (s.trim().toLowerCase(Locale.ROOT)) {
+            case "1", "y", "yes", "true", "active" -> true;
+            case "0", "n", "no", "false", "inactive" -> false;
+            default -> d;
+        };
+    }
+
+    // "$1,250" -> "1250"; plain numbers (the usual case) are returned as they are
+    private static String stripMoney(String s) {
+        if (s.indexOf('$') < 0 && s.indexOf(',') < 0) return s.trim();
+        return s.replace("$", "").replace(",", "").trim();
+    }
 }
@@ -2,92 +2,436 @@ package dao;
 
 import model.Project;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+public class ProjectDaoDb implements ProjectStore {
+    // SQL is kept in constants so QueryPlanAudit can check the plans
+    private static final String COLUMNS =
+        "id, title, location, day, hourly_value, total_slots, registered_slots, active, change_seq, version";
+    private static final String QUERY_COLUMNS =
+        "p.id, p.title, p.location, p.day, p.hourly_value, p.total_slots, p.registered_slots, p.active, p.change_seq, p.version";
+    static final String LOAD_ACTIVE_SQL =
+        "SELECT " + COLUMNS + " FROM projects WHERE active = 1 ORDER BY title, location, day";
+    static final String LOAD_ALL_SQL =
+        "SELECT " + COLUMNS + " FROM projects ORDER BY active DESC, title, location, day";
+    static final String LOAD_CHANGED_SQL =
+        "SELECT " + COLUMNS + " FROM projects WHERE change_seq > ? ORDER BY change_seq";
+    // bulk upsert: the file carries no versions, so it never lowers the live registered
+    // count (checkouts made since the file was prepared stay), and a row whose live count is
+    // already past the file's total is left as it is and reported as a conflict
+    static final String UPSERT_SQL = """
+        INSERT INTO projects(title, location, day, hourly_value, total_slots, registered_slots, active)
+        VALUES(?,?,?,?,?,?,?)
+        ON CONFLICT(title, location, day)
+        DO UPDATE SET hourly_value=excluded.hourly_value,
+                      total_slots=excluded.total_slots,
+                      registered_slots=MAX(projects.registered_slots, excluded.registered_slots),
+                      active=excluded.active,
+                      version=projects.version + 1
+        WHERE projects.registered_slots <= excluded.total_slots
+    """;
+    // one admin edit: inserts, or updates only the version the admin was looking at
+    static final String UPSERT_CAS_SQL = """
+        INSERT INTO projects(title, location, day, hourly_value, total_slots, registered_slots, active)
+        VALUES(?,?,?,?,?,?,?)
+        ON CONFLICT(title, location, day)
+        DO UPDATE SET hourly_value=excluded.hourly_value,
+                      total_slots=excluded.total_slots,
+                      registered_slots=excluded.registered_slots,
+                      active=excluded.active,
+                      version=projects.version + 1
+        WHERE projects.version = ?
+        RETURNING id, version
+    """;
+    static final String ID_BY_KEY_SQL = "SELECT id, version FROM projects WHERE title=? AND location=? AND day=?";
+    static final String VERSION_BY_ID_SQL = "SELECT version FROM projects WHERE id=?";
+    static final String SET_ACTIVE_SQL =
+        "UPDATE projects SET active=?, version=version + 1 WHERE id=? AND version=? RETURNING version";
+    static final String IMPORT_SQL = """
+        INSERT INTO projects(title, location, day, hourly_value, total_slots, registered_slots, active)
+        VALUES(?,?,?,?,?,?,?)
+        ON CONFLICT(title, location, day) DO NOTHING
+    """;
+    static final String KEYS_SQL = "SELECT title, location, day FROM projects";
+
+    private static final Set<String> DAYS = Set.of("Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun");
+    // how many rejected rows a bulk upsert describes; the rest are only counted
+    private static final int MAX_PROBLEMS = 50;
+
+    private final SlotInventory inventory;
+    private final ProjectChangeBus changes;
+
+    public ProjectDaoDb() {
+        this(new SlotInventory(), new ProjectChangeBus());
+    }
+
+    public ProjectDaoDb(SlotInventory inventory, ProjectChangeBus changes) {
+        this.inventory = inventory;
+        this.changes = changes;
+    }
 
-public class ProjectDaoDb implements ProjectDao {
     @Override
     public List<Project> loadAll() throws IOException {
-        String sql = """
-            SELECT id, title, location, day, hourly_value, total_slots, registered_slots
-            FROM projects
-            WHERE active = 1
-            ORDER BY title, location, day
-        """;
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement(LOAD_ACTIVE_SQL);
              ResultSet rs = ps.executeQuery()) {
 
             List<Project> out = new ArrayList<>();
-            while (rs.next()) {
-                out.add(new Project(
-                    rs.getInt("id"),
-                    rs.getString("title"),
-                    rs.getString("location"),
-                    rs.getString("day"),
-                    rs.getDouble("hourly_value"),
-                    rs.getInt("total_slots"),
-                    rs.getInt("registered_slots")
-                ));
-            }
+            while (rs.next()) out.add(read(rs));
             return out;
         } catch (SQLException e) {
             throw new IOException("DB load projects failed", e);
         }
     }
-    
+
+    @Override
     public List<model.Project> loadAllIncludingInactive() throws IOException {
-        String sql = """
-            SELECT id, title, location, day, hourly_value, total_slots, registered_slots
-            FROM projects
-            ORDER BY active DESC, title, location, day
-        """;
-        try (var c = Database.getConnection();
-             var ps = c.prepareStatement(sql);
+        try (var c = Database.getReadConnection();
+             var ps = c.prepareStatement(LOAD_ALL_SQL);
              var rs = ps.executeQuery()) {
             var out = new ArrayList<model.Project>();
-            while (rs.next()) {
-                out.add(new model.Project(
-                    rs.getInt("id"),
-                    rs.getString("title"),
-                    rs.getString("location"),
-                    rs.getString("day"),
-                    rs.getDouble("hourly_value"),
-                    rs.getInt("total_slots"),
-                    rs.getInt("registered_slots")
-                ));
-            }
+            while (rs.next()) out.add(read(rs));
             return out;
         } catch (SQLException e) { throw new IOException(e); }
     }
 
-    public void upsertProject(String title, String location, String day,
-                              double hourly, int total, int registered, boolean active) throws SQLException {
-        String sql = """
-            INSERT INTO projects(title, location, day, hourly_value, total_slots, registered_slots, active)
-            VALUES(?,?,?,?,?,?,?)
-            ON CONFLICT(title, location, day)
-            DO UPDATE SET hourly_value=excluded.hourly_value,
-                          total_slots=excluded.total_slots,
-                          registered_slots=excluded.registered_slots,
-                          active=excluded.active
-        """;
-        try (var c = Database.getConnection();
+    /**
+     * Rows written after change sequence number {@code sinceSeq}, active or not, oldest first.
+     * Uses the change_seq index, so the cost is the size of the change, not of the table.
+     */
+    @Override
+    public List<Project> loadChangedSince(long sinceSeq) throws IOException {
+        try (var c = Database.getReadConnection();
+             var ps = c.prepareStatement(LOAD_CHANGED_SQL)) {
+            ps.setLong(1, sinceSeq);
+            try (var rs = ps.executeQuery()) {
+                var out = new ArrayList<Project>();
+                while (rs.next()) out.add(read(rs));
+                return out;
+            }
+        } catch (SQLException e) { throw new IOException(e); }
+    }
+
+    /**
+     * Active projects matching q, one page of them. Every filter and order has an index
+     * (see Schema.addCatalogSearch); title/text searches go through projects_fts and
+     * sort only the rows that match. Only the page (plus one row, to tell whether
+     * more follow) is read.
+     */
+    @Override
+    public Page query(ProjectQuery q) throws IOException {
+        List<Object> args = new ArrayList<>();
+        String sql = querySql(q, args);
+        try (var c = Database.getReadConnection();
              var ps = c.prepareStatement(sql)) {
-            ps.setString(1, title); ps.setString(2, location); ps.setString(3, day);
-            ps.setDouble(4, hourly); ps.setInt(5, total); ps.setInt(6, registered);
-            ps.setInt(7, active ? 1 : 0);
-            ps.executeUpdate();
+            for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+            try (var rs = ps.executeQuery()) {
+                List<Project> out = new ArrayList<>(Math.min(q.limit() + 1, 1024));
+                while (rs.next()) out.add(read(rs));
+                boolean more = out.size() > q.limit();
+                if (more) out.remove(out.size() - 1);
+                return new Page(out, more);
+            }
+        } catch (SQLException e) {
+            throw new IOException("DB project query failed", e);
+        }
+    }
+
+    // SQL for q with only the filters it sets; their values are appended to args in order
+    static String querySql(ProjectQuery q, List<Object> args) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(QUERY_COLUMNS);
+        String match = ftsMatch(q);
+        if (match != null) {
+            // text search drives: the matching ids come from the FTS index, the rest is checked per row.
+            // Left to itself SQLite would walk a whole projects index and test each row against the matches
+            sql.append(" FROM projects_fts CROSS JOIN projects p ON p.id = projects_fts.rowid")
+               .append(" WHERE projects_fts MATCH ? AND p.active = 1");
+            args.add(match);
+        } else {
+            sql.append(" FROM projects p WHERE p.active = 1");
+        }
+        if (q.day() != null) {
+            sql.append(" AND p.day = ?");
+            args.add(q.day());
+        }
+        if (q.location() != null) {
+            sql.append(" AND p.location = ?");
+            args.add(q.location());
+        }
+        if (q.minAvailable() > 0) {
+            sql.append(" AND p.total_slots - p.registered_slots >= ?");
+            args.add(q.minAvailable());
+        }
+        if (q.minHourly() > 0) {
+            sql.append(" AND p.hourly_value >= ?");
+            args.add(q.minHourly());
+        }
+        if (q.maxHourly() != Double.POSITIVE_INFINITY) {
+            sql.append(" AND p.hourly_value <= ?");
+            args.add(q.maxHourly());
+        }
+        if (q.title() != null && !trigram(q.title())) {
+            sql.append(" AND p.title LIKE ? ESCAPE '\\'");
+            args.add(like(q.title()));
+        }
+        if (q.text() != null && !trigram(q.text())) {
+            sql.append(" AND (p.title LIKE ? ESCAPE '\\' OR p.location LIKE ? ESCAPE '\\')");
+            args.add(like(q.text()));
+            args.add(like(q.text()));
+        }
+        sql.append(switch (q.sort()) {
+            case TITLE -> " ORDER BY p.title, p.location, p.day";
+            case HOURLY_ASC -> " ORDER BY p.hourly_value, p.id";
+            case HOURLY_DESC -> " ORDER BY p.hourly_value DESC, p.id DESC";
+            case AVAILABLE_DESC -> " ORDER BY p.total_slots - p.registered_slots DESC, p.id DESC";
+        });
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(q.limit() + 1);
+        args.add(q.offset());
+        return sql.toString();
+    }
+
+    // FTS5 query for the title/text filters the trigram index can answer, or null
+    private static String ftsMatch(ProjectQuery q) {
+        String title = q.title() != null && trigram(q.title()) ? "title : " + phrase(q.title()) : null;
+        String text = q.text() != null && trigram(q.text()) ? phrase(q.text()) : null;
+        if (title != null && text != null) return title + " AND " + text;
+        return title != null ? title : text;
+    }
+
+    // the index holds 3-character pieces; shorter strings are matched with LIKE instead
+    private static boolean trigram(String s) {
+        return s.codePointCount(0, s.length()) >= 3;
+    }
+
+    private static String phrase(String s) {
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private static String like(String s) {
+        return "%" + s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private static Project read(ResultSet rs) throws SQLException {
+        return new Project(
+            rs.getInt("id"),
+            rs.getString("title"),
+            rs.getString("location"),
+            rs.getString("day"),
+            rs.getDouble("hourly_value"),
+            rs.getInt("total_slots"),
+            rs.getInt("registered_slots"),
+            rs.getInt("active") == 1,
+            rs.getLong("change_seq"),
+            rs.getLong("version")
+        );
+    }
+
+    /**
+     * Inserts the project, or updates the one with the same (title, location, day) if it
+     * is still at expectedVersion (NEW: only insert). A checkout or another admin that
+     * wrote the row since it was read makes this a CONFLICT instead of a lost update.
+     */
+    @Override
+    public Edit upsertProject(String title, String location, String day, double hourly, int total,
+                              int registered, boolean active, long expectedVersion) throws SQLException {
+        Edit edit = Database.transactions().write(c -> {
+            try (var ps = c.prepareStatement(UPSERT_CAS_SQL)) {
+                ps.setString(1, title); ps.setString(2, location); ps.setString(3, day);
+                ps.setDouble(4, hourly); ps.setInt(5, total); ps.setInt(6, registered);
+                ps.setInt(7, active ? 1 : 0);
+                ps.setLong(8, expectedVersion);
+                try (var rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        // the admin may have changed total or registered slots
+                        inventory.reconcile(c, rs.getInt(1));
+                        long version = rs.getLong(2);
+                        return new Edit(version == 0 ? Edit.Outcome.INSERTED : Edit.Outcome.UPDATED, rs.getInt(1), version);
+                    }
+                }
+            }
+            try (var q = c.prepareStatement(ID_BY_KEY_SQL)) {
+                q.setString(1, title); q.setString(2, location); q.setString(3, day);
+                try (var rs = q.executeQuery()) {
+                    return rs.next() ? new Edit(Edit.Outcome.CONFLICT, rs.getInt(1), rs.getLong(2))
+                                     : new Edit(Edit.Outcome.CONFLICT, 0, NEW);
+                }
+            }
+        });
+        if (!edit.conflict()) changes.publish(Set.of(edit.id()));
+        return edit;
+    }
+
+    /**
+     * Bulk import: every row in one transaction, sent to SQLite in batches of batchSize.
+     * Rows whose (title, location, day) already exists are left alone.
+     * progress gets the running count of rows read after each batch.
+     * Returns the number of rows actually inserted.
+     */
+    @Override
+    public long importProjects(ProjectDaoCsv source, int batchSize, LongConsumer progress)
+            throws IOException, SQLException {
+        long[] counts = new long[2];   // rows read, rows inserted
+        inTransaction(c -> {
+            counts[0] = counts[1] = 0;   // from the top again after a retry
+            try (var ps = c.prepareStatement(IMPORT_SQL)) {
+                source.forEachBatch(batchSize, batch -> {
+                    for (Project p : batch) {
+                        ps.setString(1, p.getTitle());
+                        ps.setString(2, p.getLocation());
+                        ps.setString(3, p.getDay());
+                        ps.setDouble(4, p.getHourlyValue());
+                        ps.setInt(5, p.getTotalSlots());
+                        ps.setInt(6, p.getRegisteredSlots());
+                        ps.setInt(7, p.isActive() ? 1 : 0);
+                        ps.addBatch();
+                    }
+                    for (int n : ps.executeBatch()) if (n > 0) counts[1]++;
+                    counts[0] += batch.size();
+                    progress.accept(counts[0]);
+                });
+            }
+        });
+        if (counts[1] > 0) {
+            if (inventory.isLoaded()) inventory.load();
+            changes.publishAll();
         }
+        return counts[1];
     }
 
-    public void setActive(int id, boolean active) throws SQLException {
-        try (var c = Database.getConnection();
-             var ps = c.prepareStatement("UPDATE projects SET active=? WHERE id=?")) {
-            ps.setInt(1, active ? 1 : 0);
-            ps.setInt(2, id);
-            ps.executeUpdate();
+    /**
+     * Admin bulk upsert: every valid row of the file is inserted, or updates the project
+     * with the same (title, location, day), in one transaction sent in batches of batchSize.
+     * Rows with a blank key, an unknown day or impossible numbers are rejected and counted,
+     * not written. An update keeps registrations made since the file was prepared (see
+     * UPSERT_SQL) and is a conflict if they no longer fit the new total.
+     * progress gets the running count of rows read after each batch.
+     *
+     * Whether a row inserts or updates is decided against the keys already in the table,
+     * read once inside the same transaction, so the counts need no query per row.
+     * Row numbers in problems follow the file only when source reads it with one worker.
+     */
+    @Override
+    public UpsertReport upsertProjects(ProjectDaoCsv source, int batchSize, LongConsumer progress)
+            throws IOException, SQLException {
+        long[] counts = new long[5];   // rows read, inserted, updated, rejected, conflicts
+        List<String> problems = new ArrayList<>();
+        inTransaction(c -> {
+            Arrays.fill(counts, 0);   // from the top again after a retry
+            problems.clear();
+            try (var ps = c.prepareStatement(UPSERT_SQL)) {
+                Set<String> keys = new HashSet<>();
+                try (var q = c.prepareStatement(KEYS_SQL);
+                     var rs = q.executeQuery()) {
+                    while (rs.next()) keys.add(key(rs.getString(1), rs.getString(2), rs.getString(3)));
+                }
+
+                source.forEachBatch(batchSize, batch -> {
+                    List<Long> rows = new ArrayList<>(batch.size());   // file row of each statement
+                    for (Project p : batch) {
+                        long row = ++counts[0];
+                        String problem = validate(p);
+                        if (problem != null) {
+                            counts[3]++;
+                            if (problems.size() < MAX_PROBLEMS) problems.add("row " + row + ": " + problem);
+                            continue;
+                        }
+                        counts[keys.add(key(p.getTitle(), p.getLocation(), p.getDay())) ? 1 : 2]++;
+                        ps.setString(1, p.getTitle());
+                        ps.setString(2, p.getLocation());
+                        ps.setString(3, p.getDay());
+                        ps.setDouble(4, p.getHourlyValue());
+                        ps.setInt(5, p.getTotalSlots());
+                        ps.setInt(6, p.getRegisteredSlots());
+                        ps.setInt(7, p.isActive() ? 1 : 0);
+                        ps.addBatch();
+                        rows.add(row);
+                    }
+                    int[] written = ps.executeBatch();
+                    for (int i = 0; i < written.length; i++) {
+                        if (written[i] != 0) continue;
+                        counts[2]--;
+                        counts[4]++;
+                        if (problems.size() < MAX_PROBLEMS) {
+                            problems.add("row " + rows.get(i) + ": more slots are registered now than its total, left unchanged");
+                        }
+                    }
+                    progress.accept(counts[0]);
+                });
+            }
+        });
+        if (counts[1] + counts[2] > 0) {
+            // totals and registrations may have changed anywhere
+            if (inventory.isLoaded()) inventory.load();
+            changes.publishAll();
+        }
+        return new UpsertReport(counts[1], counts[2], counts[3], counts[4], List.copyOf(problems));
+    }
+
+    private interface ImportWork {
+        void run(Connection c) throws IOException, SQLException;
+    }
+
+    // one transaction on the writer, retried on contention; an IOException from the file
+    // rolls it back and is rethrown as it was
+    private static void inTransaction(ImportWork work) throws IOException, SQLException {
+        try {
+            Database.transactions().transaction(c -> {
+                try {
+                    work.run(c);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
+
+    // why a row cannot be written, or null if it can
+    private static String validate(Project p) {
+        if (p.getTitle().isBlank()) return "missing title";
+        if (p.getLocation().isBlank()) return "missing location";
+        if (!DAYS.contains(p.getDay())) return "day must be Mon..Sun, was '" + p.getDay() + "'";
+        if (!(p.getHourlyValue() > 0)) return "hourly value must be a positive number";
+        if (p.getTotalSlots() <= 0) return "total slots must be a positive whole number";
+        if (p.getRegisteredSlots() < 0 || p.getRegisteredSlots() > p.getTotalSlots())
+            return "registered slots must be between 0 and total slots";
+        return null;
+    }
+
+    private static String key(String title, String location, String day) {
+        return title + '\u0000' + location + '\u0000' + day;
+    }
+
+    /** Shows or hides a project if it is still at expectedVersion; see upsertProject. */
+    @Override
+    public Edit setActive(int id, boolean active, long expectedVersion) throws SQLException {
+        Edit edit = Database.transactions().write(c -> {
+            try (var ps = c.prepareStatement(SET_ACTIVE_SQL)) {
+                ps.setInt(1, active ? 1 : 0);
+                ps.setInt(2, id);
+                ps.setLong(3, expectedVersion);
+                try (var rs = ps.executeQuery()) {
+                    if (rs.next()) return new Edit(Edit.Outcome.UPDATED, id, rs.getLong(1));
+                }
+            }
+            try (var q = c.prepareStatement(VERSION_BY_ID_SQL)) {
+                q.setInt(1, id);
+                try (var rs = q.executeQuery()) {
+                    return new Edit(Edit.Outcome.CONFLICT, id, rs.next() ? rs.getLong(1) : NEW);
+                }
+            }
+        });
+        if (!edit.conflict()) changes.publish(Set.of(id));
+        return edit;
+    }
 }
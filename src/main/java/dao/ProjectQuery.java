@@ -0,0 +1,109 @@
+package dao;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+import model.Project;
+
+/**
+ * What ProjectDao.query should return: filters on active projects, an order and a page.
+ * Start from ALL and narrow it down:
+ *   ProjectQuery.ALL.withDay("Mon").withText("park").sortedBy(Sort.HOURLY_DESC).page(0, 50)
+ * - day and location match exactly; title and text match a substring, ignoring case
+ *   (text looks in title and location)
+ * - a filter left at its ALL value is not applied
+ * - matches() and order() give the same answer in memory (ProjectDaoCsv uses them)
+ */
+public record ProjectQuery(String day, String location, int minAvailable,
+                           double minHourly, double maxHourly,
+                           String title, String text, Sort sort, int offset, int limit) {
+
+    public enum Sort { TITLE, HOURLY_DESC, HOURLY_ASC, AVAILABLE_DESC }
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final ProjectQuery ALL = new ProjectQuery(
+            null, null, 0, 0, Double.POSITIVE_INFINITY, null, null, Sort.TITLE, 0, DEFAULT_LIMIT);
+
+    public ProjectQuery {
+        day = blankToNull(day);
+        location = blankToNull(location);
+        title = blankToNull(title);
+        text = blankToNull(text);
+        if (sort == null) sort = Sort.TITLE;
+        if (offset < 0 || limit <= 0) throw new IllegalArgumentException("Bad page: offset " + offset + ", limit " + limit);
+    }
+
+    public ProjectQuery withDay(String day) {
+        return new ProjectQuery(day, location, minAvailable, minHourly, maxHourly, title, text, sort, 0, limit);
+    }
+
+    public ProjectQuery withLocation(String location) {
+        return new ProjectQuery(day, location, minAvailable, minHourly, maxHourly, title, text, sort, 0, limit);
+    }
+
+    public ProjectQuery withMinAvailable(int minAvailable) {
+        return new ProjectQuery(day, location, minAvailable, minHourly, maxHourly, title, text, sort, 0, limit);
+    }
+
+    public ProjectQuery withHourly(double min, double max) {
+        return new ProjectQuery(day, location, minAvailable, min, max, title, text, sort, 0, limit);
+    }
+
+    public ProjectQuery withTitle(String title) {
+        return new ProjectQuery(day, location, minAvailable, minHourly, maxHourly, title, text, sort, 0, limit);
+    }
+
+    public ProjectQuery withText(String text) {
+        return new ProjectQuery(day, location, minAvailable, minHourly, maxHourly, title, text, sort, 0, limit);
+    }
+
+    public ProjectQuery sortedBy(Sort sort) {
+        return new ProjectQuery(day, location, minAvailable, minHourly, maxHourly, title, text, sort, 0, limit);
+    }
+
+    public ProjectQuery page(int offset, int limit) {
+        return new ProjectQuery(day, location, minAvailable, minHourly, maxHourly, title, text, sort, offset, limit);
+    }
+
+    /** The page after this one. */
+    public ProjectQuery next() {
+        return page(offset + limit, limit);
+    }
+
+    /** True if any filter is set (order and page aside, the same as ALL otherwise). */
+    public boolean filtered() {
+        return day != null || location != null || minAvailable > 0 || minHourly > 0
+                || maxHourly != Double.POSITIVE_INFINITY || title != null || text != null;
+    }
+
+    public boolean matches(Project p) {
+        return p.isActive()
+                && (day == null || day.equals(p.getDay()))
+                && (location == null || location.equals(p.getLocation()))
+                && (minAvailable <= 0 || p.getAvailableSlots() >= minAvailable)
+                && p.getHourlyValue() >= minHourly && p.getHourlyValue() <= maxHourly
+                && (title == null || containsIgnoreCase(p.getTitle(), title))
+                && (text == null || containsIgnoreCase(p.getTitle(), text) || containsIgnoreCase(p.getLocation(), text));
+    }
+
+    // ties are broken by id in the same direction, which is what the indexes give for free
+    public Comparator<Project> order() {
+        return switch (sort) {
+            case TITLE -> Comparator.comparing(Project::getTitle)
+                    .thenComparing(Project::getLocation).thenComparing(Project::getDay);
+            case HOURLY_ASC -> Comparator.comparingDouble(Project::getHourlyValue).thenComparingInt(Project::getId);
+            case HOURLY_DESC -> Comparator.comparingDouble(Project::getHourlyValue)
+                    .thenComparingInt(Project::getId).reversed();
+            case AVAILABLE_DESC -> Comparator.comparingInt(Project::getAvailableSlots)
+                    .thenComparingInt(Project::getId).reversed();
+        };
+    }
+
+    private static boolean containsIgnoreCase(String s, String part) {
+        return s.toLowerCase(Locale.ROOT).contains(part.toLowerCase(Locale.ROOT));
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s.trim();
+    }
+}
@@ -0,0 +1,78 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Project;
+
+public class ProjectQueryTest {
+    private static final String[] DAYS = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+    private static final String[] WORDS = { "Park", "Beach", "Library", "Garden", "Kitchen" };
+
+    private static ProjectDaoDb dao;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        TestDb.open("project-query");
+        dao = new ProjectDaoDb();
+        for (int i = 0; i < 300; i++) {
+            int total = 5 + i % 20;
+            dao.upsertProject(WORDS[i % 5] + " " + WORDS[i / 5 % 5].toLowerCase() + " #" + i,
+                    "Suburb " + i % 13, DAYS[i % 7], 10 + i % 17, total, i % (total + 1), i % 11 != 0,
+                    ProjectStore.NEW);
+        }
+    }
+
+    @AfterAll
+    static void cleanup() {
+        TestDb.close();
+    }
+
+    @Test
+    void sqlAgreesWithInMemoryFilters() throws Exception {
+        List<Project> all = dao.loadAllIncludingInactive();
+        ProjectQuery q = ProjectQuery.ALL;
+        for (ProjectQuery query : List.of(q, q.withDay("Wed"), q.withLocation("Suburb 4"),
+                q.withMinAvailable(8).sortedBy(ProjectQuery.Sort.AVAILABLE_DESC),
+                q.withHourly(12, 20).sortedBy(ProjectQuery.Sort.HOURLY_DESC),
+                q.withText("PARK"), q.withText("urb 1"), q.withText("#1"), q.withTitle("garden").withText("kit"),
+                q.withTitle("100%"), q.withText("ch\"x"), q.sortedBy(ProjectQuery.Sort.HOURLY_ASC).page(40, 25))) {
+            List<Integer> expected = all.stream().filter(query::matches).sorted(query.order())
+                    .skip(query.offset()).limit(query.limit()).map(Project::getId).toList();
+            assertEquals(expected, ids(dao.query(query).rows()), query::toString);
+        }
+    }
+
+    @Test
+    void pagesCoverTheWholeResult() throws Exception {
+        ProjectQuery q = ProjectQuery.ALL.withText("beach").page(0, 7);
+        List<Integer> paged = new ArrayList<>();
+        ProjectDao.Page page;
+        do {
+            page = dao.query(q);
+            paged.addAll(ids(page.rows()));
+            q = q.next();
+        } while (page.more());
+        assertEquals(ids(dao.query(q.page(0, 1000)).rows()), paged);
+    }
+
+    @Test
+    void searchFollowsRenames() throws Exception {
+        try (var c = Database.getWriteConnection(); var s = c.createStatement()) {
+            s.executeUpdate("UPDATE projects SET title = 'Zebra crossing' WHERE title = 'Beach park #1'");
+        }
+        List<Project> found = dao.query(ProjectQuery.ALL.withText("zebra")).rows();
+        assertEquals(1, found.size());
+        assertFalse(ids(dao.query(ProjectQuery.ALL.withTitle("beach park").page(0, 1000)).rows())
+                .contains(found.get(0).getId()));
+    }
+
+    private static List<Integer> ids(List<Project> rows) {
+        return rows.stream().map(Project::getId).toList();
+    }
+}
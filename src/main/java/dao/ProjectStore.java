@@ -0,0 +1,52 @@
+package dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+import model.Project;
+
+/**
+ * The projects table: ProjectDao's reads plus what only the database does, the catalog
+ * sync (ProjectCatalog) and the admin writes. An interface so Model can time it with
+ * DaoMetrics like the other DAOs; ProjectDaoDb documents each method.
+ */
+public interface ProjectStore extends ProjectDao {
+    /** expectedVersion for an edit that must create the project: any existing row conflicts. */
+    long NEW = -1;
+
+    /**
+     * What an edit of one project did. On CONFLICT nothing was written: the row was not
+     * at the expected version, and version is the one it has now (id is 0 and version
+     * NEW if it does not exist).
+     */
+    record Edit(Outcome outcome, int id, long version) {
+        public enum Outcome { INSERTED, UPDATED, CONFLICT }
+
+        public boolean conflict() {
+            return outcome == Outcome.CONFLICT;
+        }
+    }
+
+    /**
+     * Outcome of a bulk upsert; problems describes the first rejected and conflicting rows
+     * ("row 12: ..."). A conflict is a row left unchanged because more slots are already
+     * registered than its new total.
+     */
+    record UpsertReport(long inserted, long updated, long rejected, long conflicts, List<String> problems) { }
+
+    List<Project> loadAllIncludingInactive() throws IOException;
+
+    List<Project> loadChangedSince(long sinceSeq) throws IOException;
+
+    Edit upsertProject(String title, String location, String day, double hourly, int total,
+                       int registered, boolean active, long expectedVersion) throws SQLException;
+
+    long importProjects(ProjectDaoCsv source, int batchSize, LongConsumer progress) throws IOException, SQLException;
+
+    UpsertReport upsertProjects(ProjectDaoCsv source, int batchSize, LongConsumer progress)
+            throws IOException, SQLException;
+
+    Edit setActive(int id, boolean active, long expectedVersion) throws SQLException;
+}
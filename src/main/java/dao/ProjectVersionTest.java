@@ -0,0 +1,95 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import dao.ProjectStore.Edit;
+import model.CartItem;
+import model.Project;
+
+public class ProjectVersionTest {
+    private static SlotInventory inventory;
+    private static ProjectDaoDb projects;
+    private static RegistrationDaoImpl registrations;
+
+    @BeforeAll
+    static void open() throws Exception {
+        TestDb.open("project-version");
+        inventory = new SlotInventory();
+        inventory.load();
+        ProjectChangeBus changes = new ProjectChangeBus();
+        projects = new ProjectDaoDb(inventory, changes);
+        registrations = new RegistrationDaoImpl(inventory, changes);
+    }
+
+    @AfterAll
+    static void cleanup() {
+        TestDb.close();
+    }
+
+    @Test
+    void anEditReadBeforeACheckoutConflicts() throws Exception {
+        Edit created = projects.upsertProject("Beach clean", "St Kilda", "Sat", 20, 10, 0, true, ProjectStore.NEW);
+        assertEquals(Edit.Outcome.INSERTED, created.outcome());
+        assertEquals(0, created.version());
+        assertTrue(projects.upsertProject("Beach clean", "St Kilda", "Sat", 20, 10, 0, true, ProjectStore.NEW).conflict());
+
+        // the admin lists the row at version 0, then a volunteer checks out 2 slots
+        registrations.confirm("vol1", List.of(new CartItem(created.id(), "Beach clean", "St Kilda", "Sat", 20, 2, 1)));
+
+        Edit stale = projects.upsertProject("Beach clean", "St Kilda", "Sat", 25, 12, 0, true, created.version());
+        assertEquals(Edit.Outcome.CONFLICT, stale.outcome());
+        assertEquals(1, stale.version());
+        assertEquals(2, find(created.id()).getRegisteredSlots());   // the checkout survived
+
+        Edit fresh = projects.upsertProject("Beach clean", "St Kilda", "Sat", 25, 12, 2, true, stale.version());
+        assertEquals(Edit.Outcome.UPDATED, fresh.outcome());
+        assertEquals(2, fresh.version());
+        assertEquals(12, find(created.id()).getTotalSlots());
+    }
+
+    @Test
+    void toggleNeedsTheCurrentVersion() throws Exception {
+        Edit created = projects.upsertProject("Food bank", "Carlton", "Tue", 18, 5, 0, true, ProjectStore.NEW);
+        assertEquals(Edit.Outcome.UPDATED, projects.setActive(created.id(), false, 0).outcome());
+        assertTrue(projects.setActive(created.id(), true, 0).conflict());
+        assertFalse(find(created.id()).isActive());
+        assertEquals(ProjectStore.NEW, projects.setActive(999_999, true, 0).version());
+    }
+
+    @Test
+    void aBulkUpsertKeepsCheckoutsMadeSinceTheFileWasWritten() throws Exception {
+        int grown = projects.upsertProject("Park walk", "Coburg", "Sun", 20, 10, 0, true, ProjectStore.NEW).id();
+        int shrunk = projects.upsertProject("Toy drive", "Brunswick", "Fri", 20, 10, 0, true, ProjectStore.NEW).id();
+        registrations.confirm("vol2", List.of(new CartItem(grown, "Park walk", "Coburg", "Sun", 20, 3, 1),
+                                              new CartItem(shrunk, "Toy drive", "Brunswick", "Fri", 20, 3, 1)));
+
+        // prepared before the checkout: both still show 0 registered
+        Path file = Files.createTempFile("bulk-upsert", ".csv");
+        Files.writeString(file, """
+                PROJECT TITLE,LOCATION,DAY,HOURLY VALUE (AUD),#REGISTERED SLOTS,#TOTAL SLOTS
+                Park walk,Coburg,Sun,22,0,12
+                Toy drive,Brunswick,Fri,22,0,2
+                """);
+        ProjectStore.UpsertReport report = projects.upsertProjects(new ProjectDaoCsv(file, 1), 100, n -> { });
+        Files.delete(file);
+
+        assertEquals(1, report.updated());
+        assertEquals(1, report.conflicts());
+        assertTrue(report.problems().get(0).startsWith("row 2: "), report.problems()::toString);
+        assertEquals(3, find(grown).getRegisteredSlots());
+        assertEquals(12, find(grown).getTotalSlots());
+        assertEquals(10, find(shrunk).getTotalSlots());
+        assertEquals(9, inventory.available(grown));
+    }
+
+    private static Project find(int id) throws Exception {
+        return projects.loadAllIncludingInactive().stream().filter(p -> p.getId() == id).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,122 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the plan of every DAO statement with EXPLAIN QUERY PLAN.
+ * A statement fails if SQLite would
+ * - read a whole table without an index ("SCAN t"), unless the statement is
+ *   meant to read every row (wholeTable), or
+ * - sort or de-duplicate through a temporary B-tree ("USE TEMP B-TREE").
+ * Every table here can grow large, so none is exempt.
+ *
+ * Run it against a database with the current schema (QueryPlanAuditTest does);
+ * from the command line: QueryPlanAudit [db-file], which migrates the file first.
+ */
+public final class QueryPlanAudit {
+    private QueryPlanAudit() {}
+
+    record Check(String name, String sql, boolean wholeTable) {
+        static Check of(String name, String sql) { return new Check(name, sql, false); }
+    }
+
+    static final List<Check> CHECKS = List.of(
+        Check.of("ProjectDaoDb.loadAll", ProjectDaoDb.LOAD_ACTIVE_SQL),
+        new Check("ProjectDaoDb.loadAllIncludingInactive", ProjectDaoDb.LOAD_ALL_SQL, true),
+        Check.of("ProjectDaoDb.loadChangedSince", ProjectDaoDb.LOAD_CHANGED_SQL),
+        Check.of("ProjectDaoDb.upsertProject (id)", ProjectDaoDb.ID_BY_KEY_SQL),
+        Check.of("ProjectDaoDb.setActive", ProjectDaoDb.SET_ACTIVE_SQL),
+        Check.of("ProjectDaoDb.setActive (conflict)", ProjectDaoDb.VERSION_BY_ID_SQL),
+        new Check("ProjectDaoDb.upsertProjects (keys)", ProjectDaoDb.KEYS_SQL, true),
+        Check.of("ProjectDaoDb.query (title)", querySql(ProjectQuery.ALL)),
+        Check.of("ProjectDaoDb.query (hourly desc)", querySql(ProjectQuery.ALL.sortedBy(ProjectQuery.Sort.HOURLY_DESC))),
+        Check.of("ProjectDaoDb.query (hourly range)", querySql(ProjectQuery.ALL.withHourly(20, 30).sortedBy(ProjectQuery.Sort.HOURLY_ASC))),
+        Check.of("ProjectDaoDb.query (available)", querySql(ProjectQuery.ALL.sortedBy(ProjectQuery.Sort.AVAILABLE_DESC))),
+        Check.of("ProjectDaoDb.query (day)", querySql(ProjectQuery.ALL.withDay("Mon"))),
+        Check.of("ProjectDaoDb.query (location)", querySql(ProjectQuery.ALL.withLocation("x"))),
+        Check.of("change_seq triggers", "SELECT COALESCE(MAX(change_seq), 0) + 1 FROM projects"),
+        new Check("SlotInventory.load", SlotInventory.LOAD_SQL, true),
+        Check.of("SlotInventory.reconcile", SlotInventory.FREE_BY_ID_SQL),
+        Check.of("RegistrationDaoImpl.confirm (available)", RegistrationDaoImpl.availableSql(3)),
+        Check.of("RegistrationDaoImpl.confirm (reserve)", RegistrationDaoImpl.RESERVE_SQL),
+        Check.of("RegistrationDaoImpl.confirm (clear cart)", RegistrationDaoImpl.CLEAR_CART_SQL),
+        Check.of("RegistrationDaoImpl.listByUser", RegistrationDaoImpl.LIST_BY_USER_SQL),
+        Check.of("RegistrationDaoImpl.listDetailsByUser", RegistrationDaoImpl.LIST_DETAILS_SQL),
+        Check.of("RegistrationDaoImpl.pageDetailsByUser", RegistrationDaoImpl.PAGE_DETAILS_SQL),
+        Check.of("CartDaoImpl.removeCartItem", CartDaoImpl.REMOVE_SQL),
+        Check.of("CartDaoImpl.clearCart", CartDaoImpl.CLEAR_SQL),
+        Check.of("CartDaoImpl.listCart", CartDaoImpl.LIST_SQL),
+        Check.of("UserDaoImpl.getUserByCredentials", UserDaoImpl.BY_USERNAME_SQL),
+        Check.of("UserDaoImpl.usernameExists", UserDaoImpl.EXISTS_SQL),
+        Check.of("UserDaoImpl.emailExists", UserDaoImpl.EMAIL_EXISTS_SQL),
+        Check.of("UserDaoImpl.register (taken)", UserDaoImpl.TAKEN_SQL),
+        new Check("UserDaoImpl.setup (taken filters)", UserDaoImpl.KEYS_SQL, true),
+        Check.of("UserDaoImpl.updatePassword", UserDaoImpl.UPDATE_PASSWORD_SQL),
+        Check.of("UserDaoImpl.getUserByCredentials (rehash)", UserDaoImpl.REHASH_SQL),
+        Check.of("SessionDaoImpl.find", SessionDaoImpl.FIND_SQL),
+        Check.of("SessionDaoImpl.extend", SessionDaoImpl.EXTEND_SQL),
+        Check.of("SessionDaoImpl.delete", SessionDaoImpl.DELETE_SQL),
+        Check.of("SessionDaoImpl.deleteByUser", SessionDaoImpl.DELETE_BY_USER_SQL),
+        Check.of("SessionDaoImpl.deleteExpired", SessionDaoImpl.DELETE_EXPIRED_SQL)
+    );
+
+    // text searches are left out: they sort their matches on purpose (see ProjectDaoDb.querySql)
+    private static String querySql(ProjectQuery q) {
+        return ProjectDaoDb.querySql(q, new ArrayList<>());
+    }
+
+    /** Problems found in the DAO statements, one line each; empty means all plans are fine. */
+    public static List<String> run() throws SQLException {
+        try (Connection c = Database.getReadConnection()) {
+            return audit(c, CHECKS);
+        }
+    }
+
+    static List<String> audit(Connection c, List<Check> checks) throws SQLException {
+        List<String> problems = new ArrayList<>();
+        for (Check check : checks) {
+            for (String step : plan(c, check.sql())) {
+                if (step.contains("TEMP B-TREE")) {
+                    problems.add(check.name() + ": " + step);
+                } else if (isFullScan(step) && !check.wholeTable()) {
+                    problems.add(check.name() + ": " + step);
+                }
+            }
+        }
+        return problems;
+    }
+
+    static List<String> plan(Connection c, String sql) throws SQLException {
+        // parameters may stay unbound: the plan does not depend on their values
+        try (PreparedStatement ps = c.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet rs = ps.executeQuery()) {
+            List<String> out = new ArrayList<>();
+            while (rs.next()) out.add(rs.getString("detail"));
+            return out;
+        }
+    }
+
+    // "SCAN t" / "SCAN TABLE t" read every row; "SCAN t USING [COVERING] INDEX i" walks an index in order
+    private static boolean isFullScan(String step) {
+        return step.startsWith("SCAN ") && !step.contains(" USING ") && !step.startsWith("SCAN CONSTANT ROW");
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length > 0) Database.useFile(args[0]);
+        try {
+            new UserDaoImpl().setup();
+            Schema.setupAll();
+            List<String> problems = run();
+            problems.forEach(System.out::println);
+            System.out.println(problems.isEmpty() ? "Query plans OK" : problems.size() + " problem(s)");
+            if (!problems.isEmpty()) System.exit(1);
+        } finally {
+            Database.shutdown();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+
+public class QueryPlanAuditTest {
+    @BeforeAll
+    static void freshSchema() throws Exception {
+        TestDb.open("plan-audit");
+    }
+
+    @AfterAll
+    static void cleanup() {
+        TestDb.close();
+    }
+
+    @Test
+    void everyDaoQueryUsesAnIndex() throws Exception {
+        List<String> problems = QueryPlanAudit.run();
+        assertTrue(problems.isEmpty(), () -> String.join("\n", problems));
+    }
+
+    @Test
+    void flagsScansAndTempSorts() throws Exception {
+        try (Connection c = Database.getReadConnection()) {
+            List<String> problems = QueryPlanAudit.audit(c, List.of(
+                QueryPlanAudit.Check.of("by total", "SELECT * FROM registrations WHERE total_value > ?"),
+                QueryPlanAudit.Check.of("sorted by function", "SELECT * FROM registrations WHERE username=? ORDER BY datetime(date_time)")));
+            assertEquals(2, problems.size(), () -> String.join("\n", problems));
+        }
+    }
+
+    @Test
+    void migrationsAreRecorded() throws Exception {
+        assertTrue(Schema.version() >= 2);
+        Schema.setupAll();   // second run is a no-op
+        assertTrue(Schema.version() >= 2);
+    }
+}
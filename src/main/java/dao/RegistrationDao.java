@@ -5,11 +5,26 @@ import model.Registration;
 import model.RegistrationDetail;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface RegistrationDao {
+    /** Where the next history page starts: just after (dateEpoch, regId), going back in time. */
+    record Cursor(long dateEpoch, long regId) {
+        public static final Cursor NEWEST = new Cursor(Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /** One page of history, newest first; next is null when there is nothing older. */
+    record Page(List<RegistrationDetail> rows, Cursor next) { }
+
     void confirm(String username, List<CartItem> items) throws SQLException;
+
+    // group-committed checkout: the future completes once the registrations are committed
+    CompletableFuture<Void> confirmAsync(String username, List<CartItem> items);
     
     List<model.Registration> listByUser(String username) throws SQLException;
     
     List<model.RegistrationDetail> listDetailsByUser(String username) throws SQLException;
+
+    // keyset paging: cost depends on the page size, not on how far back the page is
+    Page pageDetailsByUser(String username, Cursor after, int limit) throws SQLException;
 }
@@ -5,88 +5,179 @@ import model.Registration;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class RegistrationDaoImpl implements RegistrationDao {
+    // SQL is kept in constants so QueryPlanAudit can check the plans
+    static final String INSERT_SQL = """
+        INSERT INTO registrations(username, project_id, slots, hours, date_time, date_epoch, total_value)
+        VALUES(?,?,?,?,?,?,?)
+    """;
+    static final String RESERVE_SQL = """
+        UPDATE projects SET registered_slots = registered_slots + ?, version = version + 1
+        WHERE id=? AND total_slots - registered_slots >= ?
+    """;
+    static final String CLEAR_CART_SQL = "DELETE FROM cart_items WHERE username=?";
+    static final String LIST_BY_USER_SQL = """
+        SELECT reg_id, username, project_id, slots, hours, date_time, total_value
+        FROM registrations
+        WHERE username=?
+        ORDER BY date_epoch DESC, reg_id DESC
+    """;
+    static final String LIST_DETAILS_SQL = """
+        SELECT r.reg_id, r.date_time, p.title, p.location, p.day,
+               r.slots, r.hours, r.total_value
+        FROM registrations r
+        JOIN projects p ON p.id = r.project_id
+        WHERE r.username = ?
+        ORDER BY r.date_epoch DESC, r.reg_id DESC
+    """;
+    static final String PAGE_DETAILS_SQL = """
+        SELECT r.reg_id, r.date_time, r.date_epoch, p.title, p.location, p.day,
+               r.slots, r.hours, r.total_value
+        FROM registrations r
+        JOIN projects p ON p.id = r.project_id
+        WHERE r.username = ? AND (r.date_epoch, r.reg_id) < (?, ?)
+        ORDER BY r.date_epoch DESC, r.reg_id DESC
+        LIMIT ?
+    """;
+
+    private final SlotInventory inventory;
+    private final ProjectChangeBus changes;
+
+    public RegistrationDaoImpl() {
+        // never loaded: every cart goes straight to the DB check
+        this(new SlotInventory(), new ProjectChangeBus());
+    }
+
+    public RegistrationDaoImpl(SlotInventory inventory, ProjectChangeBus changes) {
+        this.inventory = inventory;
+        this.changes = changes;
+    }
 
     @Override
     public void confirm(String username, List<CartItem> items) throws SQLException {
         if (items == null || items.isEmpty()) return;
+        WriteQueue.await(confirmAsync(username, items));
+    }
 
-        try (Connection c = Database.getConnection()) {
-            c.setAutoCommit(false);
-            try {
-                for (CartItem it : items) {
-                    // 1) check availability
-                    int available = getAvailable(c, it.projectId());
-                    if (it.slots() > available) {
-                        throw new SQLException("Insufficient slots for project " + it.title());
-                    }
-
-                    // 2) insert registration
-                    double total = it.hourlyValue() * it.hours() * it.slots();
-                    try (PreparedStatement ins = c.prepareStatement("""
-                        INSERT INTO registrations(username, project_id, slots, hours, date_time, total_value)
-                        VALUES(?,?,?,?,?,?)
-                    """)) {
-                        ins.setString(1, username);
-                        ins.setInt(2, it.projectId());
-                        ins.setInt(3, it.slots());
-                        ins.setInt(4, it.hours());
-                        ins.setString(5, LocalDateTime.now().toString());
-                        ins.setDouble(6, total);
-                        ins.executeUpdate();
-                    }
-
-                    // 3) bump registered_slots
-                    try (PreparedStatement upd = c.prepareStatement("""
-                        UPDATE projects SET registered_slots = registered_slots + ?
-                        WHERE id=?
-                    """)) {
-                        upd.setInt(1, it.slots());
-                        upd.setInt(2, it.projectId());
-                        upd.executeUpdate();
-                    }
-                }
+    @Override
+    public CompletableFuture<Void> confirmAsync(String username, List<CartItem> items) {
+        if (items == null || items.isEmpty()) return CompletableFuture.completedFuture(null);
+        List<CartItem> snapshot = List.copyOf(items);
 
-                // 4) clear cart
-                try (PreparedStatement del = c.prepareStatement("DELETE FROM cart_items WHERE username=?")) {
-                    del.setString(1, username);
-                    del.executeUpdate();
-                }
+        // 1) admit or reject the whole cart in memory, before touching the DB
+        Map<Integer, Integer> demand = new HashMap<>();
+        for (CartItem it : snapshot) demand.merge(it.projectId(), it.slots(), Integer::sum);
+        SlotInventory.Reservation r = inventory.tryReserve(demand);
+        if (!r.granted()) {
+            return CompletableFuture.failedFuture(
+                    new SQLException("Insufficient slots for project " + titleOf(snapshot, r.rejectedProjectId())));
+        }
+
+        // runs inside the write queue's transaction; any exception rolls back this checkout only
+        CompletableFuture<Void> f = Database.writeQueue().submit(c -> {
+            writeCheckout(c, username, snapshot, demand);
+            // 6) settle the reservation before the batch commits (see SlotInventory.commit)
+            inventory.commit(r);
+            return null;
+        });
 
-                c.commit();
-            } catch (Exception e) {
-                c.rollback();
-                throw (e instanceof SQLException) ? (SQLException) e : new SQLException(e);
-            } finally {
-                c.setAutoCommit(true);
+        return f.whenComplete((v, e) -> {
+            if (e == null) changes.publish(demand.keySet());
+            else inventory.release(r);
+        });
+    }
+
+    // Fixed number of statements per checkout, whatever the cart size:
+    // one availability query, one INSERT batch, one UPDATE batch, one DELETE.
+    private static void writeCheckout(Connection c, String username, List<CartItem> items,
+                                      Map<Integer, Integer> demand) throws SQLException {
+        // 2) check availability of every project in one query
+        Map<Integer, Integer> available = getAvailable(c, demand.keySet());
+        for (Map.Entry<Integer, Integer> e : demand.entrySet()) {
+            if (e.getValue() > available.getOrDefault(e.getKey(), 0)) {
+                throw new SQLException("Insufficient slots for project " + titleOf(items, e.getKey()));
+            }
+        }
+
+        // 3) insert all registrations in one batch
+        LocalDateTime now = LocalDateTime.now();
+        long epoch = now.toInstant(ZoneOffset.UTC).toEpochMilli();   // same reading as the schema backfill
+        try (PreparedStatement ins = c.prepareStatement(INSERT_SQL)) {
+            for (CartItem it : items) {
+                ins.setString(1, username);
+                ins.setInt(2, it.projectId());
+                ins.setInt(3, it.slots());
+                ins.setInt(4, it.hours());
+                ins.setString(5, now.toString());
+                ins.setLong(6, epoch);
+                ins.setDouble(7, it.hourlyValue() * it.hours() * it.slots());
+                ins.addBatch();
             }
+            ins.executeBatch();
+        }
+
+        // 4) bump registered_slots in one batch, guarded so the DB can never oversell.
+        //    The guard is this write's compare-and-swap: it needs no version, only free
+        //    slots, and moving version makes an admin edit read before it conflict
+        List<Integer> ids = new ArrayList<>(demand.keySet());
+        try (PreparedStatement upd = c.prepareStatement(RESERVE_SQL)) {
+            for (int id : ids) {
+                int n = demand.get(id);
+                upd.setInt(1, n);
+                upd.setInt(2, id);
+                upd.setInt(3, n);
+                upd.addBatch();
+            }
+            int[] counts = upd.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 1) {
+                    throw new SQLException("Insufficient slots for project " + titleOf(items, ids.get(i)));
+                }
+            }
+        }
+
+        // 5) clear cart
+        try (PreparedStatement del = c.prepareStatement(CLEAR_CART_SQL)) {
+            del.setString(1, username);
+            del.executeUpdate();
         }
     }
 
-    private int getAvailable(Connection c, int projectId) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(
-                "SELECT total_slots - registered_slots FROM projects WHERE id=?")) {
-            ps.setInt(1, projectId);
+    static String availableSql(int ids) {
+        String placeholders = String.join(",", Collections.nCopies(ids, "?"));
+        return "SELECT id, total_slots - registered_slots FROM projects WHERE id IN (" + placeholders + ")";
+    }
+
+    private static Map<Integer, Integer> getAvailable(Connection c, Collection<Integer> projectIds) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(availableSql(projectIds.size()))) {
+            int i = 1;
+            for (int id : projectIds) ps.setInt(i++, id);
             try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) return 0;
-                return Math.max(0, rs.getInt(1));
+                Map<Integer, Integer> out = new HashMap<>();
+                while (rs.next()) out.put(rs.getInt(1), Math.max(0, rs.getInt(2)));
+                return out;
             }
         }
     }
 
+    private static String titleOf(List<CartItem> items, int projectId) {
+        for (CartItem it : items) if (it.projectId() == projectId) return it.title();
+        return "#" + projectId;
+    }
+
     @Override
     public List<Registration> listByUser(String username) throws SQLException {
-        String sql = """
-            SELECT reg_id, username, project_id, slots, hours, date_time, total_value
-            FROM registrations
-            WHERE username=?
-            ORDER BY datetime(date_time) DESC
-        """;
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement(LIST_BY_USER_SQL)) {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
                 List<Registration> out = new ArrayList<>();
@@ -108,33 +199,48 @@ public class RegistrationDaoImpl implements RegistrationDao {
     
     @Override
     public List<model.RegistrationDetail> listDetailsByUser(String username) throws SQLException {
-        String sql = """
-            SELECT r.reg_id, r.date_time, p.title, p.location, p.day,
-                   r.slots, r.hours, r.total_value
-            FROM registrations r
-            JOIN projects p ON p.id = r.project_id
-            WHERE r.username = ?
-            ORDER BY datetime(r.date_time) DESC
-        """;
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement(LIST_DETAILS_SQL)) {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
                 List<model.RegistrationDetail> out = new ArrayList<>();
-                while (rs.next()) {
-                    out.add(new model.RegistrationDetail(
-                        rs.getLong("reg_id"),
-                        java.time.LocalDateTime.parse(rs.getString("date_time")),
-                        rs.getString("title"),
-                        rs.getString("location"),
-                        rs.getString("day"),
-                        rs.getInt("slots"),
-                        rs.getInt("hours"),
-                        rs.getDouble("total_value")
-                    ));
-                }
+                while (rs.next()) out.add(readDetail(rs));
                 return out;
             }
         }
     }
+
+    @Override
+    public Page pageDetailsByUser(String username, Cursor after, int limit) throws SQLException {
+        Cursor from = after == null ? Cursor.NEWEST : after;
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement(PAGE_DETAILS_SQL)) {
+            ps.setString(1, username);
+            ps.setLong(2, from.dateEpoch());
+            ps.setLong(3, from.regId());
+            ps.setInt(4, limit + 1);   // one extra row tells whether there is a next page
+            try (ResultSet rs = ps.executeQuery()) {
+                List<model.RegistrationDetail> out = new ArrayList<>(limit);
+                Cursor last = null;
+                while (out.size() < limit && rs.next()) {
+                    out.add(readDetail(rs));
+                    last = new Cursor(rs.getLong("date_epoch"), rs.getLong("reg_id"));
+                }
+                return new Page(out, rs.next() ? last : null);
+            }
+        }
+    }
+
+    private static model.RegistrationDetail readDetail(ResultSet rs) throws SQLException {
+        return new model.RegistrationDetail(
+            rs.getLong("reg_id"),
+            java.time.LocalDateTime.parse(rs.getString("date_time")),
+            rs.getString("title"),
+            rs.getString("location"),
+            rs.getString("day"),
+            rs.getInt("slots"),
+            rs.getInt("hours"),
+            rs.getDouble("total_value")
+        );
+    }
 }
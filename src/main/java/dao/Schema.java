@@ -2,12 +2,28 @@
 package dao;
 
 import java.sql.*;
+import java.util.List;
 
 public final class Schema {
     private Schema() {}
 
+    @FunctionalInterface
+    private interface Migration {
+        void apply(Connection c) throws SQLException;
+    }
+
+    // Applied in order, each once; PRAGMA user_version counts how many have run.
+    // Append new steps at the end, never reorder or edit one that has shipped.
+    private static final List<Migration> MIGRATIONS = List.of(
+        Schema::addChangeTracking,      // 1
+        Schema::addIndexesAndEpoch,     // 2
+        Schema::addCatalogSearch,       // 3
+        Schema::addSessions,            // 4
+        Schema::addProjectVersions      // 5
+    );
+
     public static void setupAll() throws SQLException {
-        try (Connection c = Database.getConnection()) {
+        try (Connection c = Database.getWriteConnection()) {
             try (Statement s = c.createStatement()) {
                 s.executeUpdate("""
                     CREATE TABLE IF NOT EXISTS projects(
@@ -19,6 +35,8 @@ public final class Schema {
                       total_slots INTEGER NOT NULL,
                       registered_slots INTEGER NOT NULL,
                       active INTEGER NOT NULL DEFAULT 1,
+                      change_seq INTEGER NOT NULL DEFAULT 0,  -- see addChangeTracking
+                      version INTEGER NOT NULL DEFAULT 0,     -- see addProjectVersions
                       UNIQUE(title, location, day)
                     )
                 """);
@@ -43,11 +61,202 @@ public final class Schema {
                       slots INTEGER NOT NULL,
                       hours INTEGER NOT NULL,
                       date_time TEXT NOT NULL,      -- ISO-8601
+                      date_epoch INTEGER NOT NULL DEFAULT 0,  -- see addIndexesAndEpoch
                       total_value REAL NOT NULL,
                       FOREIGN KEY(project_id) REFERENCES projects(id)
                     )
                 """);
             }
+            migrate(c);
+        }
+    }
+
+    /** Schema version of the current database: the number of migrations applied. */
+    public static int version() throws SQLException {
+        try (Connection c = Database.getReadConnection()) {
+            return userVersion(c);
+        }
+    }
+
+    private static void migrate(Connection c) throws SQLException {
+        for (int v = userVersion(c); v < MIGRATIONS.size(); v++) {
+            c.setAutoCommit(false);
+            try {
+                MIGRATIONS.get(v).apply(c);
+                try (Statement s = c.createStatement()) {
+                    s.executeUpdate("PRAGMA user_version = " + (v + 1));   // commits with the step
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw new SQLException("Schema migration " + (v + 1) + " failed: " + e.getMessage(), e);
+            } finally {
+                c.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static int userVersion(Connection c) throws SQLException {
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * projects.change_seq is a table-wide, ever-increasing stamp: every insert or
+     * update of a row moves that row to MAX(change_seq) + 1. "What changed since N"
+     * is then an index range scan (see ProjectDaoDb.loadChangedSince).
+     * Projects are never deleted, so no delete tracking is needed.
+     */
+    private static void addChangeTracking(Connection c) throws SQLException {
+        boolean added = addColumnIfMissing(c, "projects", "change_seq", "INTEGER NOT NULL DEFAULT 0");
+        try (Statement s = c.createStatement()) {
+            if (added) s.executeUpdate("UPDATE projects SET change_seq = id");   // unique starting stamps
+            s.executeUpdate("CREATE INDEX IF NOT EXISTS idx_projects_change_seq ON projects(change_seq)");
+            s.executeUpdate("""
+                CREATE TRIGGER IF NOT EXISTS trg_projects_seq_insert
+                AFTER INSERT ON projects
+                BEGIN
+                  UPDATE projects SET change_seq = (SELECT COALESCE(MAX(change_seq), 0) + 1 FROM projects)
+                  WHERE id = NEW.id;
+                END
+            """);
+            // lists every column except change_seq, so the trigger's own UPDATE doesn't re-fire it
+            s.executeUpdate("""
+                CREATE TRIGGER IF NOT EXISTS trg_projects_seq_update
+                AFTER UPDATE OF title, location, day, hourly_value, total_slots, registered_slots, active
+                ON projects
+                BEGIN
+                  UPDATE projects SET change_seq = (SELECT COALESCE(MAX(change_seq), 0) + 1 FROM projects)
+                  WHERE id = NEW.id;
+                END
+            """);
+        }
+    }
+
+    /**
+     * Indexes for every DAO lookup (QueryPlanAudit checks them), plus
+     * registrations.date_epoch: date_time as a sortable number, so history is
+     * ordered by an index instead of by datetime(date_time) per row.
+     * The epoch is the local wall-clock time read as UTC, in milliseconds;
+     * it only has to sort like date_time does.
+     */
+    private static void addIndexesAndEpoch(Connection c) throws SQLException {
+        boolean added = addColumnIfMissing(c, "registrations", "date_epoch", "INTEGER NOT NULL DEFAULT 0");
+        try (Statement s = c.createStatement()) {
+            if (added) {
+                s.executeUpdate("""
+                    UPDATE registrations
+                    SET date_epoch = CAST(ROUND((julianday(date_time) - 2440587.5) * 86400000) AS INTEGER)
+                """);
+            }
+            // history per user, newest first (reg_id, the rowid, breaks ties)
+            s.executeUpdate("CREATE INDEX IF NOT EXISTS idx_registrations_user_epoch ON registrations(username, date_epoch)");
+            // foreign keys: joins and checks from projects
+            s.executeUpdate("CREATE INDEX IF NOT EXISTS idx_registrations_project ON registrations(project_id)");
+            s.executeUpdate("CREATE INDEX IF NOT EXISTS idx_cart_items_project ON cart_items(project_id)");
+            // dashboard list (active = 1, by title) and the admin list (active first)
+            s.executeUpdate("""
+                CREATE INDEX IF NOT EXISTS idx_projects_active_title
+                ON projects(active DESC, title, location, day)
+            """);
+        }
+    }
+
+    /**
+     * Catalog search (ProjectDaoDb.query): an index per filter/order the dashboard offers,
+     * all led by active since only active projects are searched, and projects_fts,
+     * an FTS5 index of title and location. Its trigram tokenizer matches any substring
+     * of three or more characters, ignoring case. The table stores no text of its own
+     * (content=projects); triggers keep it in step with the rows.
+     */
+    private static void addCatalogSearch(Connection c) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            s.executeUpdate("CREATE INDEX IF NOT EXISTS idx_projects_active_day ON projects(active, day, title, location)");
+            s.executeUpdate("CREATE INDEX IF NOT EXISTS idx_projects_active_location ON projects(active, location, title, day)");
+            s.executeUpdate("CREATE INDEX IF NOT EXISTS idx_projects_active_hourly ON projects(active, hourly_value)");
+            s.executeUpdate("""
+                CREATE INDEX IF NOT EXISTS idx_projects_active_available
+                ON projects(active, (total_slots - registered_slots))
+            """);
+
+            s.executeUpdate("""
+                CREATE VIRTUAL TABLE IF NOT EXISTS projects_fts
+                USING fts5(title, location, content='projects', content_rowid='id', tokenize='trigram')
+            """);
+            s.executeUpdate("""
+                CREATE TRIGGER IF NOT EXISTS trg_projects_fts_insert
+                AFTER INSERT ON projects
+                BEGIN
+                  INSERT INTO projects_fts(rowid, title, location) VALUES (NEW.id, NEW.title, NEW.location);
+                END
+            """);
+            // slot and price updates leave the text alone, so they don't touch the index
+            s.executeUpdate("""
+                CREATE TRIGGER IF NOT EXISTS trg_projects_fts_update
+                AFTER UPDATE OF title, location ON projects
+                BEGIN
+                  INSERT INTO projects_fts(projects_fts, rowid, title, location)
+                  VALUES ('delete', OLD.id, OLD.title, OLD.location);
+                  INSERT INTO projects_fts(rowid, title, location) VALUES (NEW.id, NEW.title, NEW.location);
+                END
+            """);
+            s.executeUpdate("""
+                CREATE TRIGGER IF NOT EXISTS trg_projects_fts_delete
+                AFTER DELETE ON projects
+                BEGIN
+                  INSERT INTO projects_fts(projects_fts, rowid, title, location)
+                  VALUES ('delete', OLD.id, OLD.title, OLD.location);
+                END
+            """);
+            s.executeUpdate("INSERT INTO projects_fts(projects_fts) VALUES ('rebuild')");   // rows already there
+        }
+    }
+
+    /**
+     * Remembered logins (SessionDaoImpl). A row holds the SHA-256 of the session token,
+     * never the token, and is looked up by that hash; by username when a password
+     * changes, and by expiry when old rows are cleared out.
+     */
+    private static void addSessions(Connection c) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            s.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS sessions(
+                  token_hash TEXT PRIMARY KEY,
+                  username TEXT NOT NULL,
+                  created_epoch INTEGER NOT NULL,
+                  expires_epoch INTEGER NOT NULL
+                ) WITHOUT ROWID
+            """);
+            s.executeUpdate("CREATE INDEX IF NOT EXISTS idx_sessions_username ON sessions(username)");
+            s.executeUpdate("CREATE INDEX IF NOT EXISTS idx_sessions_expires ON sessions(expires_epoch)");
+        }
+    }
+
+    /**
+     * projects.version counts the writes to one row, for optimistic concurrency: a writer
+     * that read the row at version v updates it only WHERE version = v, and moves it to
+     * v + 1. Writers bump it in their own UPDATE rather than by trigger, so the
+     * compare and the bump are one statement. Unlike change_seq it says nothing about
+     * other rows.
+     */
+    private static void addProjectVersions(Connection c) throws SQLException {
+        addColumnIfMissing(c, "projects", "version", "INTEGER NOT NULL DEFAULT 0");
+    }
+
+    private static boolean addColumnIfMissing(Connection c, String table, String column, String definition)
+            throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT 1 FROM pragma_table_info(?) WHERE name = ?")) {
+            ps.setString(1, table);
+            ps.setString(2, column);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return false;
+            }
+        }
+        try (Statement s = c.createStatement()) {
+            s.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
         }
+        return true;
     }
 }
@@ -0,0 +1,11 @@
+package dao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** A DAO parameter DaoMetrics must never write out (the slow-call log shows *** instead). */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Sensitive { }
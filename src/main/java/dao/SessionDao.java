@@ -0,0 +1,26 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Persisted login sessions. Rows are keyed by a hash of the session token, so the
+ * table alone is not enough to log in as anyone. Times are epoch milliseconds.
+ */
+public interface SessionDao {
+    /** Who a stored session belongs to and when it runs out. */
+    record Stored(String username, long expiresEpoch) { }
+
+    void save(String tokenHash, String username, long createdEpoch, long expiresEpoch) throws SQLException;
+
+    // null if there is no such session
+    Stored find(String tokenHash) throws SQLException;
+
+    void extend(String tokenHash, long expiresEpoch) throws SQLException;
+
+    void delete(String tokenHash) throws SQLException;
+
+    // every session of username except keepTokenHash (may be null); returns how many went
+    int deleteByUser(String username, String keepTokenHash) throws SQLException;
+
+    int deleteExpired(long nowEpoch) throws SQLException;
+}
@@ -0,0 +1,80 @@
+package dao;
+
+import java.sql.*;
+
+public class SessionDaoImpl implements SessionDao {
+    // SQL is kept in constants so QueryPlanAudit can check the plans
+    static final String INSERT_SQL =
+        "INSERT OR REPLACE INTO sessions(token_hash, username, created_epoch, expires_epoch) VALUES (?,?,?,?)";
+    static final String FIND_SQL = "SELECT username, expires_epoch FROM sessions WHERE token_hash = ?";
+    static final String EXTEND_SQL = "UPDATE sessions SET expires_epoch = ? WHERE token_hash = ?";
+    static final String DELETE_SQL = "DELETE FROM sessions WHERE token_hash = ?";
+    static final String DELETE_BY_USER_SQL = "DELETE FROM sessions WHERE username = ? AND token_hash <> ?";
+    static final String DELETE_EXPIRED_SQL = "DELETE FROM sessions WHERE expires_epoch <= ?";
+
+    @Override
+    public void save(String tokenHash, String username, long createdEpoch, long expiresEpoch) throws SQLException {
+        Database.transactions().write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+                ps.setString(1, tokenHash);
+                ps.setString(2, username);
+                ps.setLong(3, createdEpoch);
+                ps.setLong(4, expiresEpoch);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public Stored find(String tokenHash) throws SQLException {
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement(FIND_SQL)) {
+            ps.setString(1, tokenHash);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Stored(rs.getString(1), rs.getLong(2)) : null;
+            }
+        }
+    }
+
+    @Override
+    public void extend(String tokenHash, long expiresEpoch) throws SQLException {
+        Database.transactions().write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(EXTEND_SQL)) {
+                ps.setLong(1, expiresEpoch);
+                ps.setString(2, tokenHash);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void delete(String tokenHash) throws SQLException {
+        Database.transactions().write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(DELETE_SQL)) {
+                ps.setString(1, tokenHash);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public int deleteByUser(String username, String keepTokenHash) throws SQLException {
+        return Database.transactions().write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(DELETE_BY_USER_SQL)) {
+                ps.setString(1, username);
+                ps.setString(2, keepTokenHash == null ? "" : keepTokenHash);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public int deleteExpired(long nowEpoch) throws SQLException {
+        return Database.transactions().write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(DELETE_EXPIRED_SQL)) {
+                ps.setLong(1, nowEpoch);
+                return ps.executeUpdate();
+            }
+        });
+    }
+}
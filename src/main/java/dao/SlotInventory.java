@@ -0,0 +1,164 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory count of free slots per project, mirroring
+ * projects.total_slots - projects.registered_slots.
+ * - load() fills it from the projects table at startup
+ * - tryReserve() admits or rejects a whole cart before any DB write
+ * - commit() settles a reservation from inside the transaction that writes it, before
+ *   that commits; release() hands it back if the write fails
+ * - reconcile() re-syncs a project after someone else changed its row (admin edits)
+ *
+ * Each project is one AtomicLong packing (free, held): free is what new carts may
+ * take, held is what admitted carts took but have not written yet. All updates are
+ * compare-and-set, so checkouts never lock each other out.
+ *
+ * reconcile() computes free as the DB's free count minus held, so held must never
+ * count slots the DB already shows as registered. That is why commit() runs before
+ * the transaction commits: no DB state is ever visible with the slots both registered
+ * and held. Between commit() and the DB commit a reconcile may count the slots free
+ * twice instead; that over-count only lasts until the next reconcile and, like any
+ * stale counter, is caught by the DB's guard.
+ *
+ * The DB stays the source of truth: confirm still runs a guarded UPDATE, so a stale
+ * counter can only cause a late rejection, never an oversold project.
+ * Until load() has run, every cart is admitted and the DB decides.
+ */
+public final class SlotInventory {
+
+    /** Outcome of tryReserve(); pass granted ones to commit() and, on failure, release(). */
+    public static final class Reservation {
+        private final Map<Integer, Integer> slots;
+        private final int rejectedProjectId;
+        private final AtomicBoolean committed = new AtomicBoolean();
+
+        Reservation(Map<Integer, Integer> slots, int rejectedProjectId) {
+            this.slots = slots;
+            this.rejectedProjectId = rejectedProjectId;
+        }
+
+        public Map<Integer, Integer> slots() { return slots; }
+
+        public int rejectedProjectId() { return rejectedProjectId; }
+
+        public boolean granted() { return rejectedProjectId == 0; }
+    }
+
+    static final String LOAD_SQL = "SELECT id, total_slots - registered_slots FROM projects";
+    static final String FREE_BY_ID_SQL = "SELECT total_slots - registered_slots FROM projects WHERE id=?";
+
+    private final ConcurrentHashMap<Integer, AtomicLong> counters = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public void load() throws SQLException {
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement(LOAD_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) reconcile(rs.getInt(1), rs.getInt(2));
+        }
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Free slots as the inventory sees them, or -1 if the project is unknown. */
+    public int available(int projectId) {
+        AtomicLong a = counters.get(projectId);
+        return a == null ? -1 : free(a.get());
+    }
+
+    /** All-or-nothing: either every project in the cart is reserved, or none is. */
+    public Reservation tryReserve(Map<Integer, Integer> demand) {
+        // fixed (id) order keeps concurrent carts from repeatedly undoing each other
+        Map<Integer, Integer> wanted = new TreeMap<>(demand);
+        Map<Integer, Integer> taken = new TreeMap<>();
+        if (!loaded) return new Reservation(taken, 0);
+
+        for (Map.Entry<Integer, Integer> e : wanted.entrySet()) {
+            AtomicLong a = counters.get(e.getKey());
+            if (a == null) continue;   // not seen yet: leave it to the DB check
+            if (!take(a, e.getValue())) {
+                release(new Reservation(taken, 0));
+                return new Reservation(Map.of(), e.getKey());
+            }
+            taken.put(e.getKey(), e.getValue());
+        }
+        return new Reservation(taken, 0);
+    }
+
+    /**
+     * The reserved slots are registered by the transaction c is in, which has not
+     * committed yet: they stop being held. Call it with the writer still borrowed, so no
+     * reconcile through the writer can fall between the DB commit and this. Only the
+     * first call counts, since a retried batch writes the checkout again.
+     */
+    public void commit(Reservation r) {
+        if (r.committed.compareAndSet(false, true)) r.slots().forEach((id, n) -> update(id, 0, -n));
+    }
+
+    /** The DB write failed or was rolled back; hand the slots back. */
+    public void release(Reservation r) {
+        if (r.committed.getAndSet(false)) r.slots().forEach((id, n) -> update(id, n, 0));
+        else r.slots().forEach((id, n) -> update(id, n, -n));
+    }
+
+    /** Takes the DB's free count for one project, keeping in-flight reservations held. */
+    public void reconcile(int projectId, int dbFree) {
+        AtomicLong a = counters.computeIfAbsent(projectId, k -> new AtomicLong(pack(0, 0)));
+        long cur;
+        do {
+            cur = a.get();
+        } while (!a.compareAndSet(cur, pack(dbFree - held(cur), held(cur))));
+    }
+
+    /** Re-reads one project; c may be the writer that just changed it. */
+    public void reconcile(Connection c, int projectId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(FREE_BY_ID_SQL)) {
+            ps.setInt(1, projectId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) reconcile(projectId, rs.getInt(1));
+                else counters.remove(projectId);
+            }
+        }
+    }
+
+    // --- helpers ---
+
+    private static boolean take(AtomicLong a, int n) {
+        long cur;
+        do {
+            cur = a.get();
+            if (free(cur) < n) return false;
+        } while (!a.compareAndSet(cur, pack(free(cur) - n, held(cur) + n)));
+        return true;
+    }
+
+    private void update(int projectId, int freeDelta, int heldDelta) {
+        AtomicLong a = counters.get(projectId);
+        if (a == null) return;
+        long cur;
+        do {
+            cur = a.get();
+        } while (!a.compareAndSet(cur, pack(free(cur) + freeDelta, Math.max(0, held(cur) + heldDelta))));
+    }
+
+    private static long pack(int free, int held) {
+        return ((long) free << 32) | (held & 0xFFFFFFFFL);
+    }
+
+    private static int free(long v) { return (int) (v >> 32); }
+
+    private static int held(long v) { return (int) v; }
+}
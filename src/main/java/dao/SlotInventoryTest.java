@@ -0,0 +1,83 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dao.ProjectStore.Edit;
+import model.CartItem;
+
+public class SlotInventoryTest {
+    private static SlotInventory inventory;
+    private static ProjectDaoDb projects;
+    private static RegistrationDaoImpl registrations;
+
+    @BeforeAll
+    static void open() throws Exception {
+        TestDb.open("slot-inventory");
+        inventory = new SlotInventory();
+        inventory.load();
+        ProjectChangeBus changes = new ProjectChangeBus();
+        projects = new ProjectDaoDb(inventory, changes);
+        registrations = new RegistrationDaoImpl(inventory, changes);
+    }
+
+    @AfterAll
+    static void cleanup() {
+        TestDb.close();
+    }
+
+    @Test
+    void anAdminEditRightAfterACheckoutCommitsCountsItOnce() throws Exception {
+        var created = projects.upsertProject("Tree planting", "Kew", "Sun", 20, 10, 0, true, ProjectStore.NEW);
+        int id = created.id();
+
+        // a checkout as RegistrationDaoImpl writes it, then an admin edit that reconciles through
+        // the writer before anything else runs. Settling after the commit counted the 2 slots twice.
+        SlotInventory.Reservation r = inventory.tryReserve(Map.of(id, 2));
+        AtomicReference<Edit> edit = new AtomicReference<>();
+        WriteQueue.await(Database.writeQueue().submit(c -> {
+            try (var ps = c.prepareStatement(RegistrationDaoImpl.RESERVE_SQL)) {
+                ps.setInt(1, 2);
+                ps.setInt(2, id);
+                ps.setInt(3, 2);
+                ps.executeUpdate();
+            }
+            inventory.commit(r);
+            return null;
+        }).thenRun(() -> {
+            // runs on the write queue's thread as soon as the batch has committed
+            try {
+                edit.set(projects.upsertProject("Tree planting", "Kew", "Sun", 20, 12, 2, true, 1));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertEquals(Edit.Outcome.UPDATED, edit.get().outcome());
+        assertEquals(10, inventory.available(id));
+
+        registrations.confirm("vol1", List.of(new CartItem(id, "Tree planting", "Kew", "Sun", 20, 3, 1)));
+        assertEquals(7, inventory.available(id));
+        inventory.commit(r);   // settling again changes nothing
+        assertEquals(7, inventory.available(id));
+    }
+
+    @Test
+    void aFailedWriteHandsTheSlotsBack() throws Exception {
+        int id = projects.upsertProject("Soup kitchen", "Fitzroy", "Mon", 18, 4, 0, true, ProjectStore.NEW).id();
+        SlotInventory.Reservation r = inventory.tryReserve(Map.of(id, 3));
+        assertEquals(1, inventory.available(id));
+        assertThrows(SQLException.class, () -> WriteQueue.await(Database.writeQueue().submit(c -> {
+            inventory.commit(r);
+            throw new SQLException("disk full");
+        })));
+        inventory.release(r);
+        assertEquals(4, inventory.available(id));
+    }
+}
@@ -0,0 +1,28 @@
+package dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * A throw-away database for tests: a temp file with every table and migration,
+ * deleted again by close(). Public because tests outside dao (model) use it too.
+ */
+public final class TestDb {
+    private TestDb() {}
+
+    /** Points Database at a fresh file named prefix…db and creates the schema. */
+    public static File open(String prefix) throws IOException, SQLException {
+        File db = File.createTempFile(prefix, ".db");
+        Database.useFile(db.getPath());
+        new UserDaoImpl().setup();
+        Schema.setupAll();
+        return db;
+    }
+
+    /** Closes the pooled connections and deletes the file with its -wal and -shm. */
+    public static void close() {
+        Database.shutdown();
+        Database.deleteDbFile();
+    }
+}
@@ -0,0 +1,200 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs writes on the writer connection and tries them again while another connection
+ * (usually another copy of the app on the same file) holds the database lock.
+ * - Failures are sorted by SQLite's primary result code, the low byte of getErrorCode():
+ *   BUSY and LOCKED are contention and retried, CONSTRAINT is the data's fault and
+ *   never retried, anything else is returned at once
+ * - Each retry waits for an exponentially growing, jittered pause, so writers that
+ *   collided once do not collide again in step
+ * - Retries stop at the deadline. SQLite's own busy_timeout makes one attempt wait too,
+ *   so an attempt that starts with less than that left gets a busy_timeout of what is left
+ * - What comes out is a standard JDBC type: a constraint failure as
+ *   SQLIntegrityConstraintViolationException, contention past the deadline as
+ *   SQLTransientException, with the SQLite error as the cause
+ * - Every attempt, retry, give-up and constraint failure is counted (stats())
+ */
+public final class TxExecutor {
+
+    /** What a failed write means for trying it again. */
+    public enum Failure {
+        BUSY, LOCKED, CONSTRAINT, OTHER;
+
+        /** Another connection had the lock: the same write may succeed a little later. */
+        public boolean isContention() {
+            return this == BUSY || this == LOCKED;
+        }
+    }
+
+    /** Counts since start-up. */
+    public record Stats(long calls, long attempts, long retries, long busy, long locked,
+                        long gaveUp, long constraint) { }
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Connection c) throws SQLException;
+    }
+
+    // SQLite primary result codes
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    private final long deadlineNanos;
+    private final long firstPauseNanos;
+    private final long maxPauseNanos;
+    private final long busyTimeoutMillis;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+    private final LongAdder locked = new LongAdder();
+    private final LongAdder gaveUp = new LongAdder();
+    private final LongAdder constraint = new LongAdder();
+
+    /** busyTimeoutMillis is the busy_timeout the writer connection is opened with. */
+    public TxExecutor(Duration deadline, Duration firstPause, Duration maxPause, long busyTimeoutMillis) {
+        this.deadlineNanos = deadline.toNanos();
+        this.firstPauseNanos = firstPause.toNanos();
+        this.maxPauseNanos = maxPause.toNanos();
+        this.busyTimeoutMillis = busyTimeoutMillis;
+    }
+
+    public static Failure classify(SQLException e) {
+        // drivers wrap batch failures, so the code may sit further down the chain
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLIntegrityConstraintViolationException) return Failure.CONSTRAINT;
+            if (t instanceof SQLException s) {
+                switch (s.getErrorCode() & 0xff) {
+                    case SQLITE_BUSY: return Failure.BUSY;
+                    case SQLITE_LOCKED: return Failure.LOCKED;
+                    case SQLITE_CONSTRAINT: return Failure.CONSTRAINT;
+                    default: break;
+                }
+            }
+        }
+        return Failure.OTHER;
+    }
+
+    /**
+     * Runs work in one transaction on the writer and commits it. On contention the
+     * transaction is rolled back and work runs again from the start, so it must not
+     * have effects outside the database that cannot be repeated.
+     */
+    public <T> T transaction(Work<T> work) throws SQLException {
+        return run(work, true);
+    }
+
+    /** Runs work on the writer in auto-commit mode, again from the start on contention. */
+    public <T> T write(Work<T> work) throws SQLException {
+        return run(work, false);
+    }
+
+    /**
+     * Counts a failure that was handled somewhere else (a unit of a WriteQueue batch) and
+     * returns it as the JDBC type for its kind.
+     */
+    SQLException failed(SQLException e) {
+        return typed(e, count(classify(e)));
+    }
+
+    public Stats stats() {
+        return new Stats(calls.sum(), attempts.sum(), retries.sum(), busy.sum(), locked.sum(),
+                         gaveUp.sum(), constraint.sum());
+    }
+
+    // --- retry loop ---
+
+    private <T> T run(Work<T> work, boolean transaction) throws SQLException {
+        calls.increment();
+        long deadline = System.nanoTime() + deadlineNanos;
+        for (int attempt = 0; ; attempt++) {
+            attempts.increment();
+            SQLException failure;
+            try {
+                return attempt(work, transaction, deadline);
+            } catch (SQLException e) {
+                failure = e;
+            }
+            Failure kind = count(classify(failure));
+            if (!kind.isContention()) throw typed(failure, kind);
+
+            long pause = pause(attempt);
+            if (System.nanoTime() + pause >= deadline) {
+                gaveUp.increment();
+                throw new SQLTransientException("The database is busy (another program is writing to it), please try again",
+                                                failure.getSQLState(), failure.getErrorCode(), failure);
+            }
+            retries.increment();
+            try {
+                TimeUnit.NANOSECONDS.sleep(pause);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting to retry a write", failure);
+            }
+        }
+    }
+
+    private <T> T attempt(Work<T> work, boolean transaction, long deadline) throws SQLException {
+        try (Connection c = Database.getWriteConnection()) {
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            boolean capped = left < busyTimeoutMillis;
+            if (capped) busyTimeout(c, Math.max(1, left));
+            try {
+                if (!transaction) return work.run(c);
+                c.setAutoCommit(false);
+                try {
+                    T result = work.run(c);
+                    c.commit();
+                    return result;
+                } catch (SQLException | RuntimeException e) {
+                    c.rollback();
+                    throw e;
+                } finally {
+                    c.setAutoCommit(true);
+                }
+            } finally {
+                if (capped) busyTimeout(c, busyTimeoutMillis);
+            }
+        }
+    }
+
+    // "equal jitter": half the exponential step for certain, the other half at random
+    private long pause(int attempt) {
+        long step = Math.min(maxPauseNanos, firstPauseNanos << Math.min(attempt, 20));
+        return step / 2 + ThreadLocalRandom.current().nextLong(step / 2 + 1);
+    }
+
+    private Failure count(Failure kind) {
+        switch (kind) {
+            case BUSY -> busy.increment();
+            case LOCKED -> locked.increment();
+            case CONSTRAINT -> constraint.increment();
+            case OTHER -> { }
+        }
+        return kind;
+    }
+
+    private static SQLException typed(SQLException e, Failure kind) {
+        if (kind != Failure.CONSTRAINT || e instanceof SQLIntegrityConstraintViolationException) return e;
+        return new SQLIntegrityConstraintViolationException(e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+    }
+
+    private static void busyTimeout(Connection c, long millis) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            s.execute("PRAGMA busy_timeout = " + millis);
+        }
+    }
+}
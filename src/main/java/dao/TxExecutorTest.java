@@ -0,0 +1,110 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.time.Duration;
+
+public class TxExecutorTest {
+    private static final long BUSY_TIMEOUT = 20;   // so an attempt gives up well before the lock is let go
+
+    private static File db;
+
+    @BeforeAll
+    static void open() throws Exception {
+        db = TestDb.open("tx-executor");
+        try (Connection c = Database.getWriteConnection(); Statement s = c.createStatement()) {
+            s.executeUpdate("CREATE TABLE t(k INTEGER PRIMARY KEY)");
+            s.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT);
+        }
+    }
+
+    @AfterAll
+    static void cleanup() {
+        TestDb.close();
+    }
+
+    @Test
+    void classifiesByPrimaryResultCode() {
+        assertEquals(TxExecutor.Failure.BUSY, TxExecutor.classify(new SQLException("busy", null, 5)));
+        assertEquals(TxExecutor.Failure.BUSY, TxExecutor.classify(new SQLException("busy snapshot", null, 517)));
+        assertEquals(TxExecutor.Failure.LOCKED, TxExecutor.classify(new SQLException("locked", null, 6)));
+        assertEquals(TxExecutor.Failure.CONSTRAINT, TxExecutor.classify(new SQLException("unique", null, 2067)));
+        assertEquals(TxExecutor.Failure.OTHER, TxExecutor.classify(new SQLException("io", null, 10)));
+        assertEquals(TxExecutor.Failure.BUSY,
+                TxExecutor.classify(new SQLException("batch", new SQLException("busy", null, 5))));
+    }
+
+    @Test
+    void retriesUntilTheOtherWriterLetsGo() throws Exception {
+        TxExecutor tx = executor(Duration.ofSeconds(5));
+        try (Connection other = otherWriter()) {
+            Thread release = Thread.ofVirtual().start(() -> {
+                try {
+                    Thread.sleep(300);
+                    other.commit();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            int n = tx.transaction(c -> insert(c, 2));
+            release.join();
+            assertEquals(1, n);
+        }
+        TxExecutor.Stats s = tx.stats();
+        assertTrue(s.retries() > 0, s::toString);
+        assertEquals(s.retries() + 1, s.attempts());
+        assertEquals(0, s.gaveUp());
+    }
+
+    @Test
+    void givesUpAtTheDeadline() throws Exception {
+        TxExecutor tx = executor(Duration.ofMillis(200));
+        try (Connection other = otherWriter()) {
+            long t0 = System.nanoTime();
+            assertThrows(SQLTransientException.class, () -> tx.transaction(c -> insert(c, 3)));
+            assertTrue(System.nanoTime() - t0 < Duration.ofSeconds(2).toNanos());
+            other.rollback();
+        }
+        assertEquals(1, tx.stats().gaveUp());
+    }
+
+    @Test
+    void constraintFailuresAreNotRetried() throws Exception {
+        TxExecutor tx = executor(Duration.ofSeconds(5));
+        tx.write(c -> insert(c, 4));
+        assertThrows(SQLIntegrityConstraintViolationException.class, () -> tx.write(c -> insert(c, 4)));
+        TxExecutor.Stats s = tx.stats();
+        assertEquals(1, s.constraint());
+        assertEquals(0, s.retries());
+    }
+
+    private static TxExecutor executor(Duration deadline) {
+        return new TxExecutor(deadline, Duration.ofMillis(5), Duration.ofMillis(50), BUSY_TIMEOUT);
+    }
+
+    // a second connection to the file, holding the write lock until it commits or rolls back
+    private static Connection otherWriter() throws SQLException {
+        Connection c = DriverManager.getConnection("jdbc:sqlite:" + db.getPath());
+        c.setAutoCommit(false);
+        try (Statement s = c.createStatement()) {
+            s.executeUpdate("INSERT INTO t(k) VALUES (1000 + abs(random() % 1000))");
+        }
+        return c;
+    }
+
+    private static int insert(Connection c, int k) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            return s.executeUpdate("INSERT INTO t(k) VALUES (" + k + ")");
+        }
+    }
+}
@@ -15,12 +15,23 @@ public interface UserDao {
     void setup() throws SQLException;
 
     // Login: returns user if username + raw password match
-    User getUserByCredentials(String username, String rawPassword) throws SQLException;
+    User getUserByCredentials(String username, @Sensitive String rawPassword) throws SQLException;
+
+    // Session resume: the user behind a session token, no password involved; null if gone
+    User getUserByUsername(String username) throws SQLException;
 
     // Signup: create a user with full name, username, email, raw password
-    User createUser(String fullName, String username, String email, String rawPassword) throws SQLException;
+    User createUser(String fullName, String username, String email, @Sensitive String rawPassword) throws SQLException;
+
+    // What register() did: user is set only when the row was created
+    enum Outcome { CREATED, USERNAME_TAKEN, EMAIL_TAKEN }
+    record Signup(Outcome outcome, User user) { }
+
+    // Signup in one atomic insert; a taken username or email is a result, not an exception
+    Signup register(String fullName, String username, String email, @Sensitive String rawPassword) throws SQLException;
 
     boolean usernameExists(String username) throws SQLException;
-    boolean updatePassword(String username, String newRawPassword) throws SQLException;
+    boolean emailExists(String email) throws SQLException;
+    boolean updatePassword(String username, @Sensitive String newRawPassword) throws SQLException;
 
 }
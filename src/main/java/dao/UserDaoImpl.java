@@ -6,18 +6,55 @@ import java.util.HashSet;
 import java.util.Set;
 
 import model.User;
+import util.BloomFilter;
 import util.PasswordHasher;
 
 public class UserDaoImpl implements UserDao {
 
+    // SQL is kept in constants so QueryPlanAudit can check the plans
+    static final String BY_USERNAME_SQL = "SELECT username, full_name, email, password_hash FROM users WHERE username = ?";
+    static final String INSERT_SQL =
+        "INSERT INTO users(username, full_name, email, password_hash, created_at) VALUES (?,?,?,?,?)";
+    // with no conflict target this covers both the username key and the email UNIQUE
+    static final String REGISTER_SQL = INSERT_SQL + " ON CONFLICT DO NOTHING";
+    // only asked after register() inserted nothing: which of the two was taken
+    static final String TAKEN_SQL = "SELECT username = ? FROM users WHERE username = ? OR email = ?";
+    static final String EXISTS_SQL = "SELECT 1 FROM users WHERE username = ?";
+    static final String EMAIL_EXISTS_SQL = "SELECT 1 FROM users WHERE email = ?";
+    static final String KEYS_SQL = "SELECT username, email FROM users";
+    static final String UPDATE_PASSWORD_SQL = "UPDATE users SET password_hash=? WHERE username=?";
+    // only if nobody changed the password since it was read
+    static final String REHASH_SQL = "UPDATE users SET password_hash=? WHERE username=? AND password_hash=?";
+
     // current expected columns
     private static final Set<String> EXPECTED_COLS = Set.of(
         "username", "full_name", "email", "password_hash", "created_at"
     );
 
+    // False positive rate of the taken-name filters, and their room to grow before a reload
+    private static final double FILTER_FP_RATE = 0.01;
+    private static final int FILTER_MIN_CAPACITY = 1_024;
+
+    /**
+     * Usernames and emails already in the table, so a signup form can be told "free" without
+     * a query. Loaded by setup(); null before that, and every check then asks the table.
+     * Only this process's inserts are added, so a "free" answer is a hint: register() is
+     * what decides, atomically.
+     */
+    private record Taken(BloomFilter usernames, BloomFilter emails) {
+        void add(String username, String email) {
+            usernames.add(username);
+            emails.add(email);
+        }
+        boolean full() {
+            return usernames.size() > usernames.capacity();
+        }
+    }
+    private volatile Taken taken;
+
     @Override
     public void setup() throws SQLException {
-        try (Connection c = Database.getConnection()) {
+        try (Connection c = Database.getWriteConnection()) {
             if (!usersTableExists(c)) {
                 createUsersTable(c);
             } else if (!schemaIsCorrect(c)) {
@@ -29,7 +66,24 @@ public class UserDaoImpl implements UserDao {
                 createUsersTable(c);
             }
             seedAdminIfMissing(c);
+            taken = loadTaken(c);
+        }
+    }
+
+    // sized for twice the rows there are now, so reloads get rarer as the table grows
+    private static Taken loadTaken(Connection c) throws SQLException {
+        int rows;
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("SELECT count(*) FROM users")) {
+            rows = rs.next() ? rs.getInt(1) : 0;
+        }
+        int capacity = Math.max(FILTER_MIN_CAPACITY, rows * 2);
+        Taken t = new Taken(new BloomFilter(capacity, FILTER_FP_RATE), new BloomFilter(capacity, FILTER_FP_RATE));
+        try (PreparedStatement ps = c.prepareStatement(KEYS_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) t.add(rs.getString(1), rs.getString(2));
         }
+        return t;
     }
 
     private boolean usersTableExists(Connection c) throws SQLException {
@@ -62,6 +116,7 @@ public class UserDaoImpl implements UserDao {
         }
     }
 
+    // the admin's hash is only made when the row is missing, so a normal start pays nothing
     private void seedAdminIfMissing(Connection c) throws SQLException {
         try (PreparedStatement ps = c.prepareStatement(
                 "SELECT 1 FROM users WHERE username = 'admin'")) {
@@ -69,61 +124,132 @@ public class UserDaoImpl implements UserDao {
                 if (rs.next()) return;
             }
         }
-        try (PreparedStatement ps = c.prepareStatement(
-                "INSERT INTO users(username, full_name, email, password_hash, created_at) VALUES (?,?,?,?,?)")) {
+        try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
             ps.setString(1, "admin");
             ps.setString(2, "System Administrator");
             ps.setString(3, "admin@example.com");
-            ps.setString(4, PasswordHasher.sha256("Admin654!@"));
+            ps.setString(4, PasswordHasher.hash("Admin654!@"));
             ps.setString(5, Instant.now().toString());
             ps.executeUpdate();
         }
     }
 
+    /**
+     * Rows still holding an old-style hash (unsalted sha256, or PBKDF2 with another cost)
+     * are rehashed with the current scheme once the password has been checked.
+     */
     @Override
     public User getUserByCredentials(String username, String rawPassword) throws SQLException {
-        final String sql = "SELECT username, full_name, email, password_hash FROM users WHERE username = ?";
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+        // the read connection is back in the pool before any hashing, for unknown names too
+        User found = getUserByUsername(username);
+        if (found == null) {
+            PasswordHasher.verifyMissing(rawPassword);
+            return null;
+        }
+        if (!PasswordHasher.verify(rawPassword, found.getPasswordHash())) return null;
+        if (PasswordHasher.needsRehash(found.getPasswordHash())) {
+            String upgraded = PasswordHasher.hash(rawPassword);
+            int updated = Database.transactions().write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(REHASH_SQL)) {
+                    ps.setString(1, upgraded);
+                    ps.setString(2, found.getUsername());
+                    ps.setString(3, found.getPasswordHash());
+                    return ps.executeUpdate();
+                }
+            });
+            if (updated == 1) found.setPasswordHash(upgraded);
+        }
+        return found;
+    }
+
+    @Override
+    public User getUserByUsername(String username) throws SQLException {
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement(BY_USERNAME_SQL)) {
             ps.setString(1, username.trim());
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return null;
-                String stored = rs.getString("password_hash");
-                if (PasswordHasher.sha256(rawPassword).equals(stored)) {
-                    return new User(
-                        rs.getString("username"),
-                        rs.getString("full_name"),
-                        rs.getString("email"),
-                        stored
-                    );
-                }
-                return null;
+                return new User(
+                    rs.getString("username"),
+                    rs.getString("full_name"),
+                    rs.getString("email"),
+                    rs.getString("password_hash")
+                );
             }
         }
     }
 
     @Override
     public User createUser(String fullName, String username, String email, String rawPassword) throws SQLException {
-        final String insert =
-            "INSERT INTO users(username, full_name, email, password_hash, created_at) VALUES (?,?,?,?,?)";
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(insert)) {
-            ps.setString(1, username.trim());
-            ps.setString(2, fullName.trim());
-            ps.setString(3, email.trim());
-            ps.setString(4, PasswordHasher.sha256(rawPassword));
-            ps.setString(5, Instant.now().toString());
-            ps.executeUpdate();
-        }
-        return new User(username.trim(), fullName.trim(), email.trim(), null);
+        Signup s = register(fullName, username, email, rawPassword);
+        return switch (s.outcome()) {
+            case CREATED -> s.user();
+            case USERNAME_TAKEN -> throw new SQLException("Username already exists");
+            case EMAIL_TAKEN -> throw new SQLException("Email already registered");
+        };
+    }
+
+    /**
+     * One INSERT ... ON CONFLICT DO NOTHING, so two signups racing for the same username or
+     * email cannot both win and neither sees a constraint error. Only when nothing was
+     * inserted is the table asked which of the two was taken.
+     */
+    @Override
+    public Signup register(String fullName, String username, String email, String rawPassword) throws SQLException {
+        String u = username.trim(), fn = fullName.trim(), em = email.trim();
+        String hash = PasswordHasher.hash(rawPassword);
+        return Database.transactions().write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(REGISTER_SQL)) {
+                ps.setString(1, u);
+                ps.setString(2, fn);
+                ps.setString(3, em);
+                ps.setString(4, hash);
+                ps.setString(5, Instant.now().toString());
+                if (ps.executeUpdate() == 1) {
+                    remember(c, u, em);
+                    return new Signup(Outcome.CREATED, new User(u, fn, em, null));
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement(TAKEN_SQL)) {
+                ps.setString(1, u);
+                ps.setString(2, u);
+                ps.setString(3, em);
+                try (ResultSet rs = ps.executeQuery()) {
+                    boolean usernameTaken = false;
+                    while (rs.next()) usernameTaken |= rs.getBoolean(1);
+                    return new Signup(usernameTaken ? Outcome.USERNAME_TAKEN : Outcome.EMAIL_TAKEN, null);
+                }
+            }
+        });
+    }
+
+    private void remember(Connection c, String username, String email) throws SQLException {
+        Taken t = taken;
+        if (t == null) return;
+        t.add(username, email);
+        if (t.full()) taken = loadTaken(c);   // past its size the false positive rate climbs
     }
 
     @Override
     public boolean usernameExists(String username) throws SQLException {
-        final String sql = "SELECT 1 FROM users WHERE username = ?";
-        try (Connection c = Database.getConnection();
+        String u = username.trim();
+        Taken t = taken;
+        if (t != null && !t.usernames().mightContain(u)) return false;
+        return exists(EXISTS_SQL, u);
+    }
+
+    @Override
+    public boolean emailExists(String email) throws SQLException {
+        String em = email.trim();
+        Taken t = taken;
+        if (t != null && !t.emails().mightContain(em)) return false;
+        return exists(EMAIL_EXISTS_SQL, em);
+    }
+
+    private static boolean exists(String sql, String key) throws SQLException {
+        try (Connection c = Database.getReadConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, username.trim());
+            ps.setString(1, key);
             try (ResultSet rs = ps.executeQuery()) {
                 return rs.next();
             }
@@ -132,12 +258,13 @@ public class UserDaoImpl implements UserDao {
     
     @Override
     public boolean updatePassword(String username, String newRawPassword) throws SQLException {
-        final String sql = "UPDATE users SET password_hash=? WHERE username=?";
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, util.PasswordHasher.sha256(newRawPassword));
-            ps.setString(2, username.trim());
-            return ps.executeUpdate() == 1;
-        }
+        String hash = PasswordHasher.hash(newRawPassword);
+        return Database.transactions().write(c -> {
+            try (PreparedStatement ps = c.prepareStatement(UPDATE_PASSWORD_SQL)) {
+                ps.setString(1, hash);
+                ps.setString(2, username.trim());
+                return ps.executeUpdate() == 1;
+            }
+        });
     }
 }
@@ -0,0 +1,171 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit queue for small writes (cart edits, checkouts).
+ * - Callers submit a unit of work and get a CompletableFuture back
+ * - One background thread runs queued work in batches, one transaction per
+ *   batch on the writer connection, one SAVEPOINT per unit of work
+ * - A failing unit is rolled back to its savepoint; the rest of the batch still commits.
+ *   If the lock is held by another connection instead, the whole batch is rolled back
+ *   and run again by the TxExecutor, which gives up at its deadline
+ * - A lone unit is committed straight away. Under load, a batch is committed as soon
+ *   as maxBatch units are waiting, or flushMillis after its first unit arrived.
+ *   That is the durability bound: no write waits longer than flushMillis (plus the
+ *   commit itself), and a future only completes normally once its batch is committed
+ * - At most maxPending units may be waiting; beyond that submit() fails fast
+ *
+ * Work runs on the writer connection, so it must not borrow another connection
+ * from Database itself, and must not commit or change auto-commit. It may run more than
+ * once, so apart from the database it should only touch what the commit outcome settles.
+ */
+public final class WriteQueue {
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Connection c) throws SQLException;
+    }
+
+    private record Pending<T>(Work<T> work, CompletableFuture<T> future) {
+        void fail(Throwable t) { future.completeExceptionally(t); }
+    }
+
+    // finished a unit of work, waiting for the batch commit
+    private record Done<T>(Pending<T> pending, T result) {
+        void complete() { pending.future().complete(result); }
+    }
+
+    private final TxExecutor tx;
+    private final int maxBatch;
+    private final long flushNanos;
+    private final BlockingQueue<Pending<?>> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    WriteQueue(int maxBatch, long flushMillis, int maxPending, TxExecutor tx) {
+        this.tx = tx;
+        this.maxBatch = maxBatch;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.queue = new LinkedBlockingQueue<>(maxPending);
+        this.worker = new Thread(this::drainLoop, "db-write-queue");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public <T> CompletableFuture<T> submit(Work<T> work) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        if (!running) {
+            f.completeExceptionally(new SQLException("Write queue is closed"));
+        } else if (!queue.offer(new Pending<>(work, f))) {
+            f.completeExceptionally(new SQLException("Write queue is full, try again"));
+        }
+        return f;
+    }
+
+    /** Blocks until the write is committed (or failed), unwrapping the SQLException. */
+    public static <T> T await(CompletableFuture<T> f) throws SQLException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for write", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) throw sql;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new SQLException(cause);
+        }
+    }
+
+    /** Stops accepting work, commits what is already queued, then stops the worker. */
+    void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending<?> late;
+        while ((late = queue.poll()) != null) late.fail(new SQLException("Write queue is closed"));
+    }
+
+    // --- worker ---
+
+    private void drainLoop() {
+        List<Pending<?>> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+
+                // a lone write commits at once; linger only while others are arriving too
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() > 1 && batch.size() < maxBatch) {
+                    long left = deadline - System.nanoTime();
+                    Pending<?> next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (RuntimeException e) {
+                batch.forEach(p -> p.fail(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending<?>> batch) {
+        List<Done<?>> done;
+        try {
+            done = tx.transaction(c -> {
+                List<Done<?>> ok = new ArrayList<>(batch.size());
+                for (Pending<?> p : batch) {
+                    if (p.future().isDone()) continue;   // failed on its own in an earlier attempt
+                    Done<?> d = runOne(c, p);
+                    if (d != null) ok.add(d);
+                }
+                return ok;
+            });
+        } catch (SQLException e) {
+            // the whole batch is lost: nothing in it was committed
+            batch.forEach(p -> p.fail(e));
+            return;
+        }
+        done.forEach(Done::complete);
+    }
+
+    private <T> Done<T> runOne(Connection c, Pending<T> p) throws SQLException {
+        Savepoint sp = c.setSavepoint();
+        try {
+            T result = p.work().run(c);
+            c.releaseSavepoint(sp);
+            return new Done<>(p, result);
+        } catch (SQLException e) {
+            c.rollback(sp);
+            c.releaseSavepoint(sp);
+            if (TxExecutor.classify(e).isContention()) throw e;   // the batch is tried again
+            p.fail(tx.failed(e));
+            return null;
+        } catch (RuntimeException e) {
+            c.rollback(sp);
+            c.releaseSavepoint(sp);
+            p.fail(e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.function.LongConsumer;
+
+import dao.RegistrationDao;
+
+/**
+ * Writes a volunteer's whole participation history to a file.
+ * - Rows are read a page at a time through the DAO's keyset cursor and written
+ *   straight out, so memory use does not grow with the history
+ * - TXT is the layout the history window always exported; CSV and JSON Lines carry
+ *   the same fields, one row per line
+ * - Output goes to a temp file next to the target, moved into place only once complete
+ * - Interrupting the exporting thread cancels it (InterruptedIOException) and
+ *   leaves the target untouched
+ */
+public final class HistoryExport {
+
+    public enum Format {
+        TXT("txt"), CSV("csv"), JSONL("jsonl");
+
+        public final String extension;
+
+        Format(String extension) { this.extension = extension; }
+    }
+
+    private static final int PAGE_SIZE = 1_000;
+    private static final String CSV_HEADER = "reg_id,date_time,title,location,day,slots,hours,total_value";
+    private static final String TXT_RULE = "----------------------------------------";
+
+    private final RegistrationDao dao;
+
+    public HistoryExport(RegistrationDao dao) {
+        this.dao = dao;
+    }
+
+    /** Exports and returns the number of registrations written; progress gets the running count. */
+    public long export(String username, Format format, Path target, LongConsumer progress)
+            throws IOException, SQLException {
+        Path tmp = Files.createTempFile(target.toAbsolutePath().getParent(), ".export-", ".tmp");
+        long rows = 0;
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 Writer out = new BufferedWriter(Channels.newWriter(ch, StandardCharsets.UTF_8), 1 << 16)) {
+                StringBuilder line = new StringBuilder(256);
+                header(format, username, out);
+
+                RegistrationDao.Cursor after = RegistrationDao.Cursor.NEWEST;
+                while (after != null) {
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Export cancelled");
+                    RegistrationDao.Page page = dao.pageDetailsByUser(username, after, PAGE_SIZE);
+                    for (RegistrationDetail d : page.rows()) {
+                        line.setLength(0);
+                        switch (format) {
+                            case TXT -> txt(d, line);
+                            case CSV -> csv(d, line);
+                            case JSONL -> json(d, line);
+                        }
+                        out.append(line);
+                    }
+                    rows += page.rows().size();
+                    progress.accept(rows);
+                    after = page.next();
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // --- formats ---
+
+    private static void header(Format format, String username, Writer out) throws IOException {
+        switch (format) {
+            case TXT -> out.append("Volunteer: ").append(username).append(System.lineSeparator())
+                           .append(System.lineSeparator());
+            case CSV -> out.append(CSV_HEADER).append('\n');
+            case JSONL -> { }
+        }
+    }
+
+    private static void txt(RegistrationDetail d, StringBuilder sb) {
+        String nl = System.lineSeparator();
+        sb.append("Reg ID: ");
+        if (d.regId() < 1000) sb.append("000", 0, 4 - digits(d.regId()));
+        sb.append(d.regId()).append(nl);
+        sb.append("When:   ").append(d.dateTime()).append(nl);
+        sb.append("Project: ").append(d.title()).append(" (").append(d.location()).append(") — ")
+          .append(d.day()).append(nl);
+        sb.append("Slots:   ").append(d.slots()).append(", Hours: ").append(d.hours()).append(nl);
+        sb.append("Total:   $");
+        money(d.totalValue(), sb);
+        sb.append(nl).append(TXT_RULE).append(nl);
+    }
+
+    private static void csv(RegistrationDetail d, StringBuilder sb) {
+        sb.append(d.regId()).append(',').append(d.dateTime()).append(',');
+        csvCell(d.title(), sb);
+        sb.append(',');
+        csvCell(d.location(), sb);
+        sb.append(',');
+        csvCell(d.day(), sb);
+        sb.append(',').append(d.slots()).append(',').append(d.hours()).append(',');
+        money(d.totalValue(), sb);
+        sb.append('\n');
+    }
+
+    private static void json(RegistrationDetail d, StringBuilder sb) {
+        sb.append("{\"reg_id\":").append(d.regId());
+        sb.append(",\"date_time\":\"").append(d.dateTime()).append('"');
+        sb.append(",\"title\":");
+        jsonString(d.title(), sb);
+        sb.append(",\"location\":");
+        jsonString(d.location(), sb);
+        sb.append(",\"day\":");
+        jsonString(d.day(), sb);
+        sb.append(",\"slots\":").append(d.slots());
+        sb.append(",\"hours\":").append(d.hours());
+        sb.append(",\"total_value\":");
+        money(d.totalValue(), sb);
+        sb.append("}\n");
+    }
+
+    // --- helpers ---
+
+    private static int digits(long n) {
+        return n < 10 ? 1 : n < 100 ? 2 : n < 1000 ? 3 : 4;
+    }
+
+    // two decimals without going through String.format
+    private static void money(double v, StringBuilder sb) {
+        long cents = Math.round(v * 100);
+        if (cents < 0) { sb.append('-'); cents = -cents; }
+        sb.append(cents / 100).append('.');
+        long c = cents % 100;
+        if (c < 10) sb.append('0');
+        sb.append(c);
+    }
+
+    private static void csvCell(String s, StringBuilder sb) {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char ch = s.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) { sb.append(s); return; }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"') sb.append('"');
+            sb.append(ch);
+        }
+        sb.append('"');
+    }
+
+    private static void jsonString(String s, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (ch < 0x20) sb.append(String.format("\\u%04x", (int) ch));
+                    else sb.append(ch);
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -1,7 +1,11 @@
 package model;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 
 import dao.*;
@@ -9,96 +13,160 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 public class Model {
+    private static final System.Logger LOG = System.getLogger(Model.class.getName());
+    // DAO calls slower than this are kept, with their arguments, in the metrics slow log
+    private static final Duration SLOW_CALL = Duration.ofMillis(50);
+    private static final int SLOW_LOG_SIZE = 200;
+    private final DaoMetrics metrics = new DaoMetrics(SLOW_CALL, SLOW_LOG_SIZE);
+
     private UserDao userDao;
-    private User currentUser;
+    private volatile User currentUser;
+    private volatile String sessionToken;
+    private static final Duration SESSION_TTL = Duration.ofDays(14);
+    private static final int MAX_SESSIONS = 10_000;
+    private final SessionStore sessions;
 
     private final ObservableList<Project> projects = FXCollections.observableArrayList();
+    private volatile long projectsVersion = -1;   // catalog version the list reflects; -1 = never loaded
+    private static final int IMPORT_BATCH = 5_000;
     private final ProjectDaoCsv projectDaoCsv = new ProjectDaoCsv("/data/projects.csv");
-    private final ProjectDaoDb  projectDaoDb  = new ProjectDaoDb();
+    private final SlotInventory inventory = new SlotInventory();
+    private final ProjectChangeBus projectChanges = new ProjectChangeBus();
+    private final ProjectStore projectStore =
+        DaoMetrics.instrument(ProjectStore.class, new ProjectDaoDb(inventory, projectChanges), metrics);
+    private final ProjectCatalog catalog = new ProjectCatalog(projectStore, projectChanges);
 
-    private final CartDao cartDao = new CartDaoImpl();
-    private final RegistrationDao registrationDao = new RegistrationDaoImpl();
+    private final CartDao cartDao = DaoMetrics.instrument(CartDao.class, new CartDaoImpl(), metrics);
+    private final RegistrationDao registrationDao =
+        DaoMetrics.instrument(RegistrationDao.class, new RegistrationDaoImpl(inventory, projectChanges), metrics);
 
     public Model() {
-        userDao = new UserDaoImpl();
+        userDao = DaoMetrics.instrument(UserDao.class, new UserDaoImpl(), metrics);
+        sessions = new SessionStore(Clock.systemUTC(), SESSION_TTL, MAX_SESSIONS, new SessionDaoImpl(), userDao);
     }
 
     public void setup() throws SQLException {
-        System.out.println("SQLite file: " + dao.Database.dbFilePath());
         userDao.setup();
         Schema.setupAll();
+        sessions.purgeExpired();
         importProjectsIfEmpty();      // seed DB on first run
-        try (var c = dao.Database.getConnection();
-        	     var ps = c.prepareStatement("SELECT title, total_slots, registered_slots FROM projects");
-        	     var rs = ps.executeQuery()) {
-        	    while (rs.next()) {
-        	        System.out.printf("%s -> total=%d, reg=%d%n",
-        	            rs.getString(1), rs.getInt(2), rs.getInt(3));
-        	    }
-        	} catch (Exception ex) { ex.printStackTrace(); }
+        inventory.load();             // in-memory slot counts for checkout
+        // -Ddao.metrics.file=path keeps a metrics report there, rewritten every minute
+        String exportFile = System.getProperty("dao.metrics.file");
+        if (exportFile != null) metrics.exportEvery(Path.of(exportFile), Duration.ofMinutes(1));
+    }
 
+    /**
+     * Signs in a user whose password has just been checked and returns the session token.
+     * remember keeps the session in the sessions table so resumeSession works after a restart.
+     */
+    public String startSession(User user, boolean remember) throws SQLException {
+        String token = sessions.open(user, remember);
+        sessionToken = token;
+        currentUser = user;
+        return token;
     }
 
-    // Always load from DB so projects have real IDs
-    public void loadProjects() {
-        try {
-            List<Project> all = projectDaoDb.loadAll();   // from DB
-            projects.setAll(all);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    // Signs in with a token from startSession, no password or hashing; false if it has run out
+    public boolean resumeSession(String token) throws SQLException {
+        var user = sessions.resolve(token);
+        if (user.isEmpty()) return false;
+        sessionToken = token;
+        currentUser = user.get();
+        return true;
+    }
+
+    public void endSession() throws SQLException {
+        sessions.close(sessionToken);
+        sessionToken = null;
+        currentUser = null;
+    }
+
+    // after a password change: other windows/devices signed in as this user must log in again
+    public void endOtherSessions() throws SQLException {
+        if (currentUser != null) sessions.closeOthers(currentUser.getUsername(), sessionToken);
+    }
+
+    public SessionStore getSessions() {
+        return sessions;
+    }
+
+    // Served from the catalog cache; only rows changed since the last call are re-read
+    public void loadProjects() throws IOException {
+        applyProjects(fetchProjects(false));
+    }
+
+    // Same, but also asks the DB for rows changed by anyone else
+    public void refreshProjects() throws IOException {
+        applyProjects(fetchProjects(true));
+    }
+
+    // one page of the active catalog, filtered and sorted by the DB; safe off the FX thread
+    public ProjectDao.Page searchProjects(ProjectQuery q) throws IOException {
+        return projectStore.query(q);
+    }
+
+    /**
+     * DB half of a load/refresh; safe off the FX thread. Before the list was ever
+     * filled this is the whole active list, afterwards only the changed rows.
+     */
+    public ProjectCatalog.Delta fetchProjects(boolean checkDb) throws IOException {
+        long since = projectsVersion;
+        if (since < 0) {
+            catalog.active(checkDb);                // make sure the catalog is loaded (and current)
+            long v = catalog.version();             // read before the list: a change in between is re-applied, not lost
+            return new ProjectCatalog.Delta(v, catalog.active());
+        }
+        return catalog.changesSince(since, checkDb);
+    }
+
+    /**
+     * List half: FX thread only. The first call fills the list; later calls add, replace
+     * or remove only the changed rows, so TableView redraws those rows and nothing else.
+     */
+    public void applyProjects(ProjectCatalog.Delta d) {
+        if (projectsVersion < 0) {
+            projects.setAll(d.changed());
+        } else {
+            for (Project p : d.changed()) applyChange(p);
+        }
+        projectsVersion = Math.max(projectsVersion, d.version());
+    }
+
+    private void applyChange(Project p) {
+        // (title, location, day) is unique and never changes for an id, so it finds the old row too
+        int i = Collections.binarySearch(projects, p, ProjectCatalog.BY_TITLE);
+        if (i >= 0) {
+            if (p.isActive()) projects.set(i, p);
+            else projects.remove(i);
+        } else if (p.isActive()) {
+            projects.add(-i - 1, p);
         }
     }
   
     private void importProjectsIfEmpty() throws SQLException {
         if (projectsTableCount() > 0) return;
 
-        System.out.println("Importing projects from CSV into DB...");
-        final java.util.List<model.Project> csv;
+        long t0 = System.nanoTime();
+        long inserted;
         try {
-            csv = projectDaoCsv.loadAll();      // may throw IOException
+            inserted = projectStore.importProjects(projectDaoCsv, IMPORT_BATCH, rows -> {
+                if (rows >= 100_000 && rows % 100_000 < IMPORT_BATCH) LOG.log(System.Logger.Level.INFO, "... {0} rows", rows);
+            });
         } catch (IOException e) {
             throw new SQLException("CSV import failed: " + e.getMessage(), e);
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // duplicates are skipped by the import itself, so this is a row the table refuses
+            throw new SQLIntegrityConstraintViolationException("CSV import failed, a row breaks a table rule: "
+                    + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
         }
-
-        String ins = """
-            INSERT INTO projects(title, location, day, hourly_value, total_slots, registered_slots, active)
-            VALUES(?,?,?,?,?,?,1)
-        """;
-
-        try (var c = dao.Database.getConnection();
-             var ps = c.prepareStatement(ins)) {
-
-            int n = 0;
-            for (var p : csv) {
-                // Guard: if somehow total/registered are reversed, fix them NOW
-                int total = p.getTotalSlots();
-                int reg   = p.getRegisteredSlots();
-                if (reg > total && total > 0) {
-                    int tmp = total; total = reg; reg = tmp;
-                }
-
-                ps.setString(1, p.getTitle());
-                ps.setString(2, p.getLocation());
-                ps.setString(3, p.getDay());
-                ps.setDouble(4, p.getHourlyValue());
-                ps.setInt(5, total);     // total FIRST
-                ps.setInt(6, reg);       // registered SECOND
-                try {
-                    ps.executeUpdate();
-                    if (n++ < 3) {
-                        System.out.printf("Inserted: %s (%s/%s) total=%d reg=%d%n",
-                            p.getTitle(), p.getLocation(), p.getDay(), total, reg);
-                    }
-                } catch (SQLException dup) {
-                    // UNIQUE(title,location,day) => ignore
-                }
-            }
-        }
+        LOG.log(System.Logger.Level.INFO, "Imported {0} projects from CSV in {1} ms",
+                inserted, (System.nanoTime() - t0) / 1_000_000);
     }
 
 
     private int projectsTableCount() throws SQLException {
-        try (Connection c = Database.getConnection();
+        try (Connection c = Database.getReadConnection();
              PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM projects");
              ResultSet rs = ps.executeQuery()) {
             return rs.next() ? rs.getInt(1) : 0;
@@ -118,4 +186,10 @@ public class Model {
     	return cartDao; }
     public RegistrationDao getRegistrationDao() { 
     	return registrationDao; }
+    public ProjectStore getProjectDao() { 
+    	return projectStore; }
+    public ProjectCatalog getCatalog() { 
+    	return catalog; }
+    public DaoMetrics getMetrics() { 
+    	return metrics; }
 }
@@ -8,10 +8,28 @@ public class Project {
     private final double hourlyValue;
     private final int totalSlots;
     private final int registeredSlots;
-    
+    private final boolean active;
+    private final long changeSeq;      // projects.change_seq: bumped on every write to the row
+    private final long version;        // projects.version: this row's write count, for compare-and-swap edits
 
     public Project(int id, String title, String location, String day,
                    double hourlyValue, int totalSlots, int registeredSlots) {
+        this(id, title, location, day, hourlyValue, totalSlots, registeredSlots, true);
+    }
+
+    public Project(int id, String title, String location, String day,
+                   double hourlyValue, int totalSlots, int registeredSlots, boolean active) {
+        this(id, title, location, day, hourlyValue, totalSlots, registeredSlots, active, 0);
+    }
+
+    public Project(int id, String title, String location, String day,
+                   double hourlyValue, int totalSlots, int registeredSlots, boolean active, long changeSeq) {
+        this(id, title, location, day, hourlyValue, totalSlots, registeredSlots, active, changeSeq, 0);
+    }
+
+    public Project(int id, String title, String location, String day,
+                   double hourlyValue, int totalSlots, int registeredSlots, boolean active,
+                   long changeSeq, long version) {
     	this.id = id;
         this.title = title;
         this.location = location;
@@ -19,6 +37,9 @@ public class Project {
         this.hourlyValue = hourlyValue;
         this.totalSlots = totalSlots;
         this.registeredSlots = registeredSlots;
+        this.active = active;
+        this.changeSeq = changeSeq;
+        this.version = version;
     }
     
     public Project(String title, String location, String day,
@@ -49,4 +70,13 @@ public class Project {
     
     public int getAvailableSlots() { 
     	return Math.max(0, totalSlots - registeredSlots); }
+    
+    public boolean isActive() { 
+    	return active; }
+    
+    public long getChangeSeq() { 
+    	return changeSeq; }
+    
+    public long getVersion() { 
+    	return version; }
 }
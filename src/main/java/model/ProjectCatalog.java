@@ -0,0 +1,136 @@
+package model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import dao.ProjectChangeBus;
+import dao.ProjectStore;
+
+/**
+ * Read-through cache of the projects table, keyed by project id.
+ * - The first read loads every project (active or not) once
+ * - A write announced on the ProjectChangeBus only marks the cache dirty;
+ *   the next read fetches the rows whose change_seq moved past the cached one
+ * - Writes from outside this process (another copy of the app, a DB tool) are never
+ *   announced, so plain reads do not see them. The checkDb variants ask the DB for
+ *   moved change_seq rows anyway; the dashboard's load and focus refresh and the
+ *   admin list use them, so what the user asks to see is current
+ * - Serves both the dashboard (active only) and the admin view (everything),
+ *   plus changesSince() for consumers that patch their own copies
+ */
+public class ProjectCatalog {
+    // same orders the SQL used to produce
+    static final Comparator<Project> BY_TITLE = Comparator
+            .comparing(Project::getTitle)
+            .thenComparing(Project::getLocation)
+            .thenComparing(Project::getDay);
+    private static final Comparator<Project> ACTIVE_FIRST = Comparator
+            .comparing((Project p) -> !p.isActive())
+            .thenComparing(BY_TITLE);
+
+    /** Projects written after some version, and the version they bring you up to. */
+    public record Delta(long version, List<Project> changed) { }
+
+    private final ProjectStore dao;
+    private final Map<Integer, Project> byId = new HashMap<>();
+    private final TreeMap<Long, Integer> idBySeq = new TreeMap<>();   // change_seq -> id
+    private volatile boolean dirty;   // set by committing threads
+    private boolean loaded;
+    private long version;             // highest change_seq seen
+
+    // sorted views, rebuilt lazily after a change
+    private List<Project> activeView;
+    private List<Project> allView;
+
+    public ProjectCatalog(ProjectStore dao, ProjectChangeBus changes) {
+        this.dao = dao;
+        changes.subscribe(ids -> dirty = true);
+    }
+
+    /** Active projects, ordered by title, location, day. */
+    public synchronized List<Project> active() throws IOException {
+        return active(false);
+    }
+
+    /** Same; checkDb also picks up writes made outside this process. */
+    public synchronized List<Project> active(boolean checkDb) throws IOException {
+        sync(checkDb);
+        if (activeView == null) {
+            activeView = byId.values().stream().filter(Project::isActive).sorted(BY_TITLE).toList();
+        }
+        return activeView;
+    }
+
+    /** Every project, active ones first. */
+    public synchronized List<Project> all() throws IOException {
+        return all(false);
+    }
+
+    /** Same; checkDb also picks up writes made outside this process. */
+    public synchronized List<Project> all(boolean checkDb) throws IOException {
+        sync(checkDb);
+        if (allView == null) {
+            allView = byId.values().stream().sorted(ACTIVE_FIRST).toList();
+        }
+        return allView;
+    }
+
+    public synchronized Project get(int id) throws IOException {
+        sync(false);
+        return byId.get(id);
+    }
+
+    /**
+     * Projects (active or not) written after {@code sinceVersion}.
+     * checkDb also picks up writes made outside this process; otherwise
+     * the DB is only asked when this process wrote something.
+     */
+    public synchronized Delta changesSince(long sinceVersion, boolean checkDb) throws IOException {
+        sync(checkDb);
+        List<Project> out = new ArrayList<>();
+        for (int id : idBySeq.tailMap(sinceVersion, false).values()) out.add(byId.get(id));
+        return new Delta(version, out);
+    }
+
+    /** Highest change_seq the cache has seen; does not touch the DB. */
+    public synchronized long version() {
+        return version;
+    }
+
+    /** Drops everything; the next read reloads the whole table. */
+    public synchronized void invalidateAll() {
+        loaded = false;
+    }
+
+    // --- helpers ---
+
+    private void sync(boolean checkDb) throws IOException {
+        if (!loaded) {
+            dirty = false;
+            byId.clear();
+            idBySeq.clear();
+            version = 0;
+            dao.loadAllIncludingInactive().forEach(this::put);
+            loaded = true;
+            activeView = allView = null;
+        } else if (dirty || checkDb) {
+            dirty = false;   // cleared first: a write landing during the read marks it again
+            List<Project> changed = dao.loadChangedSince(version);
+            if (changed.isEmpty()) return;
+            changed.forEach(this::put);
+            activeView = allView = null;
+        }
+    }
+
+    private void put(Project p) {
+        Project old = byId.put(p.getId(), p);
+        if (old != null) idBySeq.remove(old.getChangeSeq());
+        if (p.getChangeSeq() > 0) idBySeq.put(p.getChangeSeq(), p.getId());   // 0 = never written since tracking began
+        version = Math.max(version, p.getChangeSeq());
+    }
+}
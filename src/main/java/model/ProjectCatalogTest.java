@@ -0,0 +1,84 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+
+import dao.ProjectChangeBus;
+import dao.ProjectDaoDb;
+import dao.ProjectStore;
+import dao.ProjectStore.Edit;
+import dao.SlotInventory;
+import dao.TestDb;
+
+public class ProjectCatalogTest {
+    private static File db;
+    private static ProjectDaoDb projects;
+    private static ProjectCatalog catalog;
+
+    @BeforeAll
+    static void open() throws Exception {
+        db = TestDb.open("project-catalog");
+        SlotInventory inventory = new SlotInventory();
+        inventory.load();
+        ProjectChangeBus changes = new ProjectChangeBus();
+        projects = new ProjectDaoDb(inventory, changes);
+        catalog = new ProjectCatalog(projects, changes);
+    }
+
+    @AfterAll
+    static void cleanup() {
+        TestDb.close();
+    }
+
+    @Test
+    void anAdminRefreshSeesAnEditFromAnotherProcess() throws Exception {
+        int id = projects.upsertProject("Library shelving", "Carlton", "Wed", 18, 6, 0, true, ProjectStore.NEW).id();
+        assertEquals(0, find(catalog.all(true), id).getVersion());
+
+        // another copy of the app edits the row: nothing is announced on this process's bus
+        try (Connection other = DriverManager.getConnection("jdbc:sqlite:" + db.getPath());
+             PreparedStatement ps = other.prepareStatement(
+                     "UPDATE projects SET total_slots = 8, version = version + 1 WHERE id = ?")) {
+            ps.setInt(1, id);
+            assertEquals(1, ps.executeUpdate());
+        }
+        assertEquals(0, find(catalog.all(), id).getVersion());   // the cache alone cannot know
+
+        Edit stale = projects.upsertProject("Library shelving", "Carlton", "Wed", 18, 7, 0, true, 0);
+        assertEquals(Edit.Outcome.CONFLICT, stale.outcome());
+
+        Project shown = find(catalog.all(true), id);
+        assertEquals(1, shown.getVersion());
+        assertEquals(8, shown.getTotalSlots());
+        Edit retried = projects.upsertProject("Library shelving", "Carlton", "Wed", 18, 7, 0, true, shown.getVersion());
+        assertEquals(Edit.Outcome.UPDATED, retried.outcome());
+    }
+
+    @Test
+    void theDashboardRefreshSeesAProjectClosedByAnotherProcess() throws Exception {
+        int id = projects.upsertProject("Op shop", "Northcote", "Thu", 16, 4, 0, true, ProjectStore.NEW).id();
+        assertTrue(catalog.active(true).stream().anyMatch(p -> p.getId() == id));
+
+        try (Connection other = DriverManager.getConnection("jdbc:sqlite:" + db.getPath());
+             PreparedStatement ps = other.prepareStatement("UPDATE projects SET active = 0 WHERE id = ?")) {
+            ps.setInt(1, id);
+            assertEquals(1, ps.executeUpdate());
+        }
+        long before = catalog.version();
+        assertTrue(catalog.active().stream().anyMatch(p -> p.getId() == id));
+        assertFalse(catalog.active(true).stream().anyMatch(p -> p.getId() == id));
+        assertTrue(catalog.version() > before);
+    }
+
+    private static Project find(Iterable<Project> list, int id) {
+        for (Project p : list) if (p.getId() == id) return p;
+        throw new AssertionError("project " + id + " not listed");
+    }
+}
@@ -0,0 +1,173 @@
+package model;
+
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import dao.SessionDao;
+import dao.UserDao;
+import util.PasswordHasher;
+
+/**
+ * Logged-in sessions, keyed by an opaque random token.
+ * - open() makes a token for a user who has just given their password; resolve()
+ *   turns it back into the user later, with no password and no hashing
+ * - A session lasts ttl from its last use. At most maxSessions are held in memory,
+ *   the least recently used going first
+ * - Sessions opened with persist = true are also written through the SessionDao (by the
+ *   token's SHA-256, never the token), so they can be resumed after a restart
+ * - Thread-safe, so one store can serve many clients at once
+ */
+public final class SessionStore {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final class Entry {
+        final User user;
+        final boolean persisted;
+        long expires;           // epoch ms, moves forward on every use
+        long persistedUntil;    // what the sessions table says, for persisted entries
+
+        Entry(User user, boolean persisted, long expires) {
+            this.user = user;
+            this.persisted = persisted;
+            this.expires = expires;
+            this.persistedUntil = expires;
+        }
+    }
+
+    private final Clock clock;
+    private final long ttlMillis;
+    private final int maxSessions;
+    private final SessionDao persisted;   // null: memory only
+    private final UserDao users;
+
+    // token -> session, in access order; guarded by itself
+    private final LinkedHashMap<String, Entry> byToken = new LinkedHashMap<>(64, 0.75f, true);
+
+    public SessionStore(Clock clock, Duration ttl, int maxSessions, SessionDao persisted, UserDao users) {
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.maxSessions = maxSessions;
+        this.persisted = persisted;
+        this.users = users;
+    }
+
+    /** Starts a session for user and returns its token. */
+    public String open(User user, boolean persist) throws SQLException {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = clock.millis();
+        boolean keep = persist && persisted != null;
+        if (keep) persisted.save(hash(token), user.getUsername(), now, now + ttlMillis);
+        put(token, new Entry(user, keep, now + ttlMillis));
+        return token;
+    }
+
+    /** The user a live session belongs to; empty if the token is unknown or has run out. */
+    public Optional<User> resolve(String token) throws SQLException {
+        if (token == null || token.isEmpty()) return Optional.empty();
+        long now = clock.millis();
+        Entry e;
+        boolean expired = false, extend = false;
+        synchronized (byToken) {
+            e = byToken.get(token);
+            if (e != null && e.expires <= now) {
+                byToken.remove(token);
+                expired = e.persisted;
+                e = null;
+            } else if (e != null) {
+                e.expires = now + ttlMillis;
+                // the table only needs to keep up roughly: write when half its time is gone
+                if (e.persisted && e.persistedUntil - now < ttlMillis / 2) {
+                    e.persistedUntil = e.expires;
+                    extend = true;
+                }
+            }
+        }
+        // the table is written with the lock released
+        if (e != null) {
+            if (extend) persisted.extend(hash(token), now + ttlMillis);
+            return Optional.of(e.user);
+        }
+        if (expired) {
+            persisted.delete(hash(token));
+            return Optional.empty();
+        }
+        return resume(token, now);
+    }
+
+    /** Ends one session (log out). */
+    public void close(String token) throws SQLException {
+        if (token == null) return;
+        synchronized (byToken) { byToken.remove(token); }
+        if (persisted != null) persisted.delete(hash(token));
+    }
+
+    /** Ends every session of username except keepToken, e.g. after a password change. */
+    public void closeOthers(String username, String keepToken) throws SQLException {
+        synchronized (byToken) {
+            byToken.entrySet().removeIf(en -> en.getValue().user.getUsername().equals(username)
+                                             && !en.getKey().equals(keepToken));
+        }
+        if (persisted != null) persisted.deleteByUser(username, keepToken == null ? null : hash(keepToken));
+    }
+
+    /** Drops sessions that have run out, in memory and in the table. */
+    public int purgeExpired() throws SQLException {
+        long now = clock.millis();
+        int n = 0;
+        synchronized (byToken) {
+            for (Iterator<Entry> it = byToken.values().iterator(); it.hasNext(); ) {
+                if (it.next().expires <= now) { it.remove(); n++; }
+            }
+        }
+        if (persisted != null) n += persisted.deleteExpired(now);
+        return n;
+    }
+
+    public int size() {
+        synchronized (byToken) { return byToken.size(); }
+    }
+
+    // --- helpers ---
+
+    // not in memory: a persisted session from an earlier run, or evicted from memory
+    private Optional<User> resume(String token, long now) throws SQLException {
+        if (persisted == null) return Optional.empty();
+        String h = hash(token);
+        SessionDao.Stored s = persisted.find(h);
+        if (s == null) return Optional.empty();
+        User user = s.expiresEpoch() > now ? users.getUserByUsername(s.username()) : null;
+        if (user == null) {
+            persisted.delete(h);
+            return Optional.empty();
+        }
+        persisted.extend(h, now + ttlMillis);
+        put(token, new Entry(user, true, now + ttlMillis));
+        return Optional.of(user);
+    }
+
+    private void put(String token, Entry e) {
+        synchronized (byToken) {
+            byToken.put(token, e);
+            // over the bound: the least recently used go (persisted ones can still resume from the table)
+            Iterator<Map.Entry<String, Entry>> it = byToken.entrySet().iterator();
+            while (byToken.size() > maxSessions && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    // tokens are 256 random bits, so one fast hash is enough to keep them out of the table
+    private static String hash(String token) {
+        return PasswordHasher.sha256(token);
+    }
+}
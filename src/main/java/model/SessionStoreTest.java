@@ -0,0 +1,84 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import dao.SessionDaoImpl;
+import dao.TestDb;
+import dao.UserDaoImpl;
+
+public class SessionStoreTest {
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final User ADMIN = new User("admin", "System Administrator", "admin@example.com", null);
+
+    /** A clock the test moves by hand. */
+    private static final class ManualClock extends Clock {
+        Instant now = Instant.parse("2025-03-03T09:00:00Z");
+        void advance(Duration d) { now = now.plus(d); }
+        @Override public Instant instant() { return now; }
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+    }
+
+    @BeforeAll
+    static void freshSchema() throws Exception {
+        TestDb.open("sessions");
+    }
+
+    @AfterAll
+    static void cleanup() {
+        TestDb.close();
+    }
+
+    @Test
+    void sessionsSlideAndExpire() throws Exception {
+        ManualClock clock = new ManualClock();
+        SessionStore store = new SessionStore(clock, TTL, 100, null, null);
+        String token = store.open(ADMIN, false);
+
+        clock.advance(Duration.ofMinutes(20));
+        assertEquals("admin", store.resolve(token).orElseThrow().getUsername());
+        clock.advance(Duration.ofMinutes(20));   // 40 min after open, 20 after last use
+        assertTrue(store.resolve(token).isPresent());
+        clock.advance(TTL);
+        assertTrue(store.resolve(token).isEmpty());
+        assertTrue(store.resolve("made-up").isEmpty());
+    }
+
+    @Test
+    void leastRecentlyUsedGoFirst() throws Exception {
+        SessionStore store = new SessionStore(new ManualClock(), TTL, 2, null, null);
+        String a = store.open(ADMIN, false);
+        String b = store.open(ADMIN, false);
+        store.resolve(a);
+        String c = store.open(ADMIN, false);
+        assertEquals(2, store.size());
+        assertTrue(store.resolve(a).isPresent());
+        assertTrue(store.resolve(b).isEmpty());
+        assertTrue(store.resolve(c).isPresent());
+    }
+
+    @Test
+    void rememberedSessionsSurviveARestart() throws Exception {
+        ManualClock clock = new ManualClock();
+        var users = new UserDaoImpl();
+        String token = new SessionStore(clock, TTL, 100, new SessionDaoImpl(), users).open(ADMIN, true);
+        String other = new SessionStore(clock, TTL, 100, new SessionDaoImpl(), users).open(ADMIN, true);
+
+        SessionStore restarted = new SessionStore(clock, TTL, 100, new SessionDaoImpl(), users);
+        assertEquals("admin@example.com", restarted.resolve(token).orElseThrow().getEmail());
+
+        restarted.closeOthers("admin", token);   // password changed in this session
+        assertTrue(restarted.resolve(other).isEmpty());
+        restarted.close(token);
+        assertTrue(new SessionStore(clock, TTL, 100, new SessionDaoImpl(), users).resolve(token).isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set membership in a fixed bit array: mightContain() is never false for a string that
+ * was added, and true for one that wasn't with about the false-positive rate asked for,
+ * as long as no more than the expected number of strings are added (size() vs capacity()).
+ * Strings cannot be removed. Safe to add to and query from any number of threads.
+ */
+public final class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final int capacity;
+    private final AtomicInteger added = new AtomicInteger();
+
+    public BloomFilter(int expected, double falsePositiveRate) {
+        if (expected < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("expected=" + expected + ", rate=" + falsePositiveRate);
+        }
+        // standard sizing: m = -n ln p / (ln 2)^2 bits, k = m/n ln 2 hashes
+        long m = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, (m + 63) / 64 * 64);
+        this.bits = m;
+        this.words = new AtomicLongArray((int) (m / 64));
+        this.hashes = Math.max(1, (int) Math.round((double) m / expected * Math.log(2)));
+        this.capacity = expected;
+    }
+
+    public void add(String s) {
+        long h = hash64(s);
+        int h1 = (int) h, h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = index(h1 + i * h2);
+            int w = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long old;
+            do {
+                old = words.get(w);
+                if ((old & mask) != 0) break;
+            } while (!words.compareAndSet(w, old, old | mask));
+        }
+        added.incrementAndGet();
+    }
+
+    public boolean mightContain(String s) {
+        long h = hash64(s);
+        int h1 = (int) h, h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** How many strings have been added (repeats counted again). */
+    public int size() {
+        return added.get();
+    }
+
+    /** How many strings the filter was sized for. */
+    public int capacity() {
+        return capacity;
+    }
+
+    private long index(int combined) {
+        return (combined & 0x7FFFFFFFL) % bits;
+    }
+
+    // FNV-1a over the UTF-16 chars, then a 64-bit finaliser so both halves are well mixed
+    private static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
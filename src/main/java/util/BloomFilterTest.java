@@ -0,0 +1,24 @@
+package util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class BloomFilterTest {
+
+    @Test
+    void addedStringsAreAlwaysFound() {
+        BloomFilter f = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) f.add("user" + i);
+        for (int i = 0; i < 10_000; i++) assertTrue(f.mightContain("user" + i), "user" + i);
+        assertEquals(10_000, f.size());
+    }
+
+    @Test
+    void falsePositivesStayNearTheRateAskedFor() {
+        BloomFilter f = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) f.add("user" + i + "@example.com");
+        int hits = 0;
+        for (int i = 0; i < 100_000; i++) if (f.mightContain("other" + i + "@example.com")) hits++;
+        assertTrue(hits < 2_000, hits + " false positives in 100000");
+    }
+}
@@ -1,8 +1,47 @@
 package util;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/** The 6-digit confirmation code, checked by a char scan instead of a regex. */
 public final class ConfirmValidator {
+    public static final int CODE_LENGTH = 6;
+
+    /** One requirement; bit() is its place in the failures() mask. */
+    public enum Rule {
+        LENGTH(CODE_LENGTH + " characters long"),
+        DIGITS_ONLY("digits only");
+
+        private final String text;
+
+        Rule(String text) { this.text = text; }
+
+        public String text() { return text; }
+        public int bit() { return 1 << ordinal(); }
+    }
+
     private ConfirmValidator(){}
+
     public static boolean isSixDigit(String s) {
-        return s != null && s.matches("^\\d{6}$");
+        return failures(s) == 0;
+    }
+
+    /** The rules s misses, as a mask of Rule.bit(); 0 means a code. Digits are ASCII 0-9, as \d was. */
+    public static int failures(String s) {
+        if (s == null) return Rule.LENGTH.bit() | Rule.DIGITS_ONLY.bit();
+        int missing = s.length() == CODE_LENGTH ? 0 : Rule.LENGTH.bit();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return missing | Rule.DIGITS_ONLY.bit();
+        }
+        return missing;
+    }
+
+    /** The rules s misses, in declaration order. */
+    public static List<Rule> failedRules(String s) {
+        int mask = failures(s);
+        List<Rule> rules = new ArrayList<>();
+        for (Rule r : Rule.values()) if ((mask & r.bit()) != 0) rules.add(r);
+        return rules;
     }
 }
@@ -3,6 +3,10 @@ package util;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
+import util.ConfirmValidator.Rule;
+
 public class ConfirmValidatorTest {
     @Test
     void sixDigitsOk() {
@@ -19,4 +23,11 @@ public class ConfirmValidatorTest {
         assertFalse(ConfirmValidator.isSixDigit("12345"));
         assertFalse(ConfirmValidator.isSixDigit("1234567"));
     }
+
+    @Test
+    void reportsBothRules() {
+        assertEquals(List.of(Rule.LENGTH, Rule.DIGITS_ONLY), ConfirmValidator.failedRules("12a"));
+        assertEquals(List.of(Rule.DIGITS_ONLY), ConfirmValidator.failedRules("١٢٣٤٥٦"));   // \d was ASCII only
+        assertFalse(ConfirmValidator.isSixDigit(null));
+    }
 }
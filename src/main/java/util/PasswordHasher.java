@@ -1,21 +1,196 @@
 package util;
 
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Password hashing for the users table.
+ * - hash() uses the current scheme (PBKDF2, see Pbkdf2Scheme); verify() accepts any
+ *   known scheme, including the unsalted sha256 hex of older databases, and
+ *   needsRehash() says when a row should be upgraded after a successful login
+ * - The slow work runs on a small fixed pool (about half the cores, queue bounded),
+ *   so a burst of logins queues up instead of taking every core from the UI and DB
+ * - A correct password is remembered per stored hash (as an HMAC under a key that
+ *   lives only in this process), so checking it again skips the key derivation.
+ *   A wrong password always pays the full cost
+ */
 public final class PasswordHasher {
     private PasswordHasher() {}
+
+    private static final int POOL_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int POOL_QUEUE = 1_024;
+    private static final int CACHE_ENTRIES = 256;
+
+    private static final PasswordScheme LEGACY = new LegacySha256();
+    private static final PasswordScheme PBKDF2 = new Pbkdf2Scheme();   // reads any iteration count
+    private static volatile Installed current = new Installed(new Pbkdf2Scheme());
+
+    private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(
+            POOL_THREADS, POOL_THREADS, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(POOL_QUEUE),
+            Thread.ofPlatform().name("password-", 0).daemon().factory());
+
+    // stored hash -> HMAC of the password that last verified against it; access order = LRU
+    private static final Map<String, byte[]> verified = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, byte[]> e) {
+            return size() > CACHE_ENTRIES;
+        }
+    };
+    private static final SecretKeySpec CACHE_KEY = new SecretKeySpec(randomBytes(32), "HmacSHA256");
+
+    /** Replaces the scheme new hashes are made with (tests and benchmarks); forgets cached checks. */
+    public static void use(PasswordScheme scheme) {
+        current = new Installed(scheme);
+        synchronized (verified) { verified.clear(); }
+    }
+
+    public static PasswordScheme scheme() {
+        return current.scheme();
+    }
+
+    /** A new stored string for raw under the current scheme. */
+    public static String hash(String raw) {
+        PasswordScheme s = current.scheme();
+        return onPool(() -> s.hash(raw));
+    }
+
+    /** True if raw is the password stored under any scheme this class knows. */
+    public static boolean verify(String raw, String stored) {
+        if (stored == null) return false;
+        PasswordScheme s = schemeOf(stored);
+        if (s == null) return false;
+        if (s == LEGACY) return s.verify(raw, stored);   // one SHA-256: not worth a trip to the pool
+
+        byte[] tag = tag(raw, stored);
+        byte[] known;
+        synchronized (verified) { known = verified.get(stored); }
+        if (known != null && MessageDigest.isEqual(known, tag)) return true;
+
+        boolean ok = onPool(() -> s.verify(raw, stored));
+        if (ok) synchronized (verified) { verified.put(stored, tag); }
+        return ok;
+    }
+
+    /**
+     * Spends about the time a verify() against a real row would, for a user that does
+     * not exist, so response time does not tell which usernames are registered.
+     */
+    public static void verifyMissing(String raw) {
+        Installed in = current;
+        onPool(() -> in.scheme().verify(raw, in.dummyHash()));
+    }
+
+    /** True if stored should be replaced by hash() of the same password. */
+    public static boolean needsRehash(String stored) {
+        return !current.scheme().upToDate(stored);
+    }
+
+    /**
+     * The hash older databases stored: unsalted SHA-256 as lowercase hex.
+     * Kept so those rows still verify (and are rehashed on login); never used for new rows.
+     */
     public static String sha256(String raw) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(raw.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder(hash.length * 2);
-            for (byte b : hash) sb.append(String.format("%02x", b));
-            
-            return sb.toString();
-            
+            return HexFormat.of().formatHex(md.digest(raw.getBytes(StandardCharsets.UTF_8)));
         } catch (Exception e) {
             throw new RuntimeException("Hashing failed", e);
         }
     }
+
+    // --- helpers ---
+
+    /**
+     * The scheme new hashes use, with a hash of a throw-away password made when it is
+     * installed: verifyMissing() then costs one verify from the first call on, and the
+     * two can never be seen out of step.
+     */
+    private record Installed(PasswordScheme scheme, String dummyHash) {
+        Installed(PasswordScheme scheme) {
+            this(scheme, scheme.hash("not a password"));
+        }
+    }
+
+    private static PasswordScheme schemeOf(String stored) {
+        for (PasswordScheme s : new PasswordScheme[] { current.scheme(), PBKDF2, LEGACY }) {
+            if (s.recognises(stored)) return s;
+        }
+        return null;
+    }
+
+    private static <T> T onPool(Callable<T> work) {
+        Future<T> f;
+        try {
+            f = POOL.submit(work);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Too many password checks in progress; try again shortly", e);
+        }
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password check interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Hashing failed", e.getCause());
+        }
+    }
+
+    private static byte[] tag(String raw, String stored) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(CACHE_KEY);
+            mac.update(stored.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(raw.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC unavailable", e);
+        }
+    }
+
+    private static byte[] randomBytes(int n) {
+        byte[] b = new byte[n];
+        new SecureRandom().nextBytes(b);
+        return b;
+    }
+
+    /** 64 hex digits, no salt: what PasswordHasher.sha256 always produced. */
+    private static final class LegacySha256 implements PasswordScheme {
+        @Override public boolean recognises(String stored) {
+            if (stored == null || stored.length() != 64) return false;
+            for (int i = 0; i < 64; i++) {
+                if (Character.digit(stored.charAt(i), 16) < 0) return false;
+            }
+            return true;
+        }
+
+        @Override public String hash(String raw) {
+            return sha256(raw);
+        }
+
+        @Override public boolean verify(String raw, String stored) {
+            byte[] expected = stored.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+            return MessageDigest.isEqual(expected, sha256(raw).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override public boolean upToDate(String stored) {
+            return false;
+        }
+    }
 }
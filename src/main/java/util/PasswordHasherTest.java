@@ -0,0 +1,73 @@
+package util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PasswordHasherTest {
+    private PasswordScheme before;
+
+    @BeforeEach
+    void cheapScheme() {
+        before = PasswordHasher.scheme();
+        PasswordHasher.use(new Pbkdf2Scheme(1_000));   // full cost would make every test slow
+    }
+
+    @AfterEach
+    void restore() {
+        PasswordHasher.use(before);
+    }
+
+    @Test
+    void hashesAreSaltedAndVerify() {
+        String a = PasswordHasher.hash("Secret1!");
+        String b = PasswordHasher.hash("Secret1!");
+        assertTrue(a.startsWith("pbkdf2-sha256$1000$"), a);
+        assertNotEquals(a, b);
+        assertTrue(PasswordHasher.verify("Secret1!", a));
+        assertTrue(PasswordHasher.verify("Secret1!", a));   // second time from the cache
+        assertFalse(PasswordHasher.verify("Secret1?", a));
+        assertFalse(PasswordHasher.needsRehash(a));
+    }
+
+    @Test
+    void legacyHashesVerifyAndAskForRehash() {
+        String legacy = PasswordHasher.sha256("Admin654!@");
+        assertEquals(64, legacy.length());
+        assertTrue(PasswordHasher.verify("Admin654!@", legacy));
+        assertFalse(PasswordHasher.verify("admin654!@", legacy));
+        assertTrue(PasswordHasher.needsRehash(legacy));
+    }
+
+    @Test
+    void otherCostStillVerifiesButIsRehashed() {
+        String older = new Pbkdf2Scheme(500).hash("Secret1!");
+        assertTrue(PasswordHasher.verify("Secret1!", older));
+        assertTrue(PasswordHasher.needsRehash(older));
+    }
+
+    @Test
+    void anUnknownUserCostsOneVerifyFromTheFirstCall() {
+        int[] hashes = new int[1], verifies = new int[1];
+        PasswordScheme inner = new Pbkdf2Scheme(1_000);
+        PasswordHasher.use(new PasswordScheme() {
+            @Override public boolean recognises(String stored) { return inner.recognises(stored); }
+            @Override public String hash(String raw) { hashes[0]++; return inner.hash(raw); }
+            @Override public boolean verify(String raw, String stored) { verifies[0]++; return inner.verify(raw, stored); }
+            @Override public boolean upToDate(String stored) { return inner.upToDate(stored); }
+        });
+        assertEquals(1, hashes[0]);   // the throw-away hash, made once when the scheme is installed
+        PasswordHasher.verifyMissing("Secret1!");
+        PasswordHasher.verifyMissing("Secret1!");
+        assertEquals(1, hashes[0]);
+        assertEquals(2, verifies[0]);
+    }
+
+    @Test
+    void malformedStoredValuesNeverVerify() {
+        for (String bad : new String[] { null, "", "plaintext", "pbkdf2-sha256$x$AA$AA", "pbkdf2-sha256$10$$", "pbkdf2-sha256$10$!!$AA" }) {
+            assertFalse(PasswordHasher.verify("plaintext", bad), String.valueOf(bad));
+        }
+    }
+}
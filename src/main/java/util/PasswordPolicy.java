@@ -1,10 +1,87 @@
 package util;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ≥8 chars, at least one upper, one lower, one digit, one special.
+ * Checked in one pass over the chars with no regex and no allocation; failures() says
+ * every rule missed, so a form can list them all at once.
+ */
 public final class PasswordPolicy {
-    // ≥8 chars, at least one upper, one lower, one digit, one special
-    private static final String REGEX =
-        "^(?=.*[A-Z])(?=.*[a-z])(?=.*\\d)(?=.*[^A-Za-z0-9]).{8,}$";
+    public static final int MIN_LENGTH = 8;
+
+    /** One requirement; bit() is its place in the failures() mask. */
+    public enum Rule {
+        LENGTH("at least " + MIN_LENGTH + " characters"),
+        UPPER("an upper-case letter"),
+        LOWER("a lower-case letter"),
+        DIGIT("a digit"),
+        SPECIAL("a special character"),
+        ONE_LINE("no line breaks");
+
+        private final String text;
+
+        Rule(String text) { this.text = text; }
+
+        public String text() { return text; }
+        public int bit() { return 1 << ordinal(); }
+    }
+
+    private static final int ALL = (1 << Rule.values().length) - 1;
+
+    private PasswordPolicy() {}
+
     public static boolean valid(String raw) {
-        return raw != null && raw.matches(REGEX);
+        return failures(raw) == 0;
+    }
+
+    /**
+     * The rules raw misses, as a mask of Rule.bit(); 0 means valid.
+     * Same answer as the old regex ^(?=.*[A-Z])(?=.*[a-z])(?=.*\d)(?=.*[^A-Za-z0-9]).{8,}$:
+     * letters and digits are ASCII only, anything else is special, length counts code
+     * points and a line break fails the whole password.
+     */
+    public static int failures(String raw) {
+        if (raw == null) return ALL;
+        int missing = Rule.UPPER.bit() | Rule.LOWER.bit() | Rule.DIGIT.bit() | Rule.SPECIAL.bit();
+        int length = 0;
+        int n = raw.length();
+        for (int i = 0; i < n; i++) {
+            char c = raw.charAt(i);
+            length++;
+            if (c >= 'A' && c <= 'Z') missing &= ~Rule.UPPER.bit();
+            else if (c >= 'a' && c <= 'z') missing &= ~Rule.LOWER.bit();
+            else if (c >= '0' && c <= '9') missing &= ~Rule.DIGIT.bit();
+            else {
+                missing &= ~Rule.SPECIAL.bit();
+                if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                    missing |= Rule.ONE_LINE.bit();
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(raw.charAt(i + 1))) {
+                    i++;   // one character in two chars
+                }
+            }
+        }
+        if (length < MIN_LENGTH) missing |= Rule.LENGTH.bit();
+        return missing;
+    }
+
+    /** The rules raw misses, in declaration order. */
+    public static List<Rule> failedRules(String raw) {
+        int mask = failures(raw);
+        List<Rule> rules = new ArrayList<>();
+        for (Rule r : Rule.values()) if ((mask & r.bit()) != 0) rules.add(r);
+        return rules;
+    }
+
+    /** "Password needs a digit and a special character", or "" when nothing failed. */
+    public static String describe(List<Rule> failed) {
+        if (failed.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder("Password needs ");
+        for (int i = 0; i < failed.size(); i++) {
+            if (i > 0) sb.append(i == failed.size() - 1 ? " and " : ", ");
+            sb.append(failed.get(i).text());
+        }
+        return sb.toString();
     }
 }
@@ -3,6 +3,11 @@ package util;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Random;
+
+import util.PasswordPolicy.Rule;
+
 public class PasswordPolicyTest {
     @Test
     void acceptsStrongPassword() {
@@ -28,4 +33,26 @@ public class PasswordPolicyTest {
     void rejectsMissingSpecial() {
         assertFalse(PasswordPolicy.valid("Abcdef12"));
     }
+
+    @Test
+    void reportsEveryFailedRuleAtOnce() {
+        assertEquals(List.of(Rule.LENGTH, Rule.UPPER, Rule.DIGIT, Rule.SPECIAL), PasswordPolicy.failedRules("abc"));
+        assertEquals(List.of(), PasswordPolicy.failedRules("Abcdef1!"));
+        assertEquals(List.of(Rule.ONE_LINE), PasswordPolicy.failedRules("Abcdef1!\n"));
+        assertEquals("Password needs a digit and a special character",
+                     PasswordPolicy.describe(PasswordPolicy.failedRules("Abcdefgh")));
+    }
+
+    @Test
+    void agreesWithTheOldRegex() {
+        String regex = "^(?=.*[A-Z])(?=.*[a-z])(?=.*\\d)(?=.*[^A-Za-z0-9]).{8,}$";
+        String alphabet = "aZ9!é١ \n\u2028\uD83D\uDE00";   // ASCII, accented, Arabic digit, breaks, emoji halves
+        Random r = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int len = r.nextInt(12); len > 0; len--) sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+            String s = sb.toString();
+            assertEquals(s.matches(regex), PasswordPolicy.valid(s), s);
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package util;
+
+/**
+ * One way of turning a password into the string stored in users.password_hash.
+ * The stored string carries whatever the scheme needs to check it again later
+ * (salt, cost), so several schemes can live side by side in one table.
+ */
+public interface PasswordScheme {
+
+    /** True if stored was written by this scheme. */
+    boolean recognises(String stored);
+
+    /** A new stored string for raw, with a fresh salt. */
+    String hash(String raw);
+
+    /** Checks raw against a stored string this scheme recognises; compares in constant time. */
+    boolean verify(String raw, String stored);
+
+    /** True if stored was written with this scheme's current settings (no rehash needed). */
+    boolean upToDate(String stored);
+}
@@ -0,0 +1,97 @@
+package util;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * PBKDF2-HMAC-SHA256 from the JDK, stored as
+ *   pbkdf2-sha256$&lt;iterations&gt;$&lt;salt, base64&gt;$&lt;hash, base64&gt;
+ * The iteration count is the cost: each verify runs that many HMACs, so it sets
+ * both how slow a guess is and how many logins a second one core can check.
+ * Rows hashed with another count still verify; upToDate() tells the DAO to rehash them.
+ */
+public final class Pbkdf2Scheme implements PasswordScheme {
+    /** OWASP's 2023 recommendation for PBKDF2-HMAC-SHA256. */
+    public static final int DEFAULT_ITERATIONS = 600_000;
+
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int iterations;
+
+    public Pbkdf2Scheme(int iterations) {
+        if (iterations < 1) throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        this.iterations = iterations;
+    }
+
+    public Pbkdf2Scheme() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public int iterations() {
+        return iterations;
+    }
+
+    @Override
+    public boolean recognises(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    @Override
+    public String hash(String raw) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + '$' + b64.encodeToString(salt) + '$'
+                + b64.encodeToString(derive(raw, salt, iterations, HASH_BITS));
+    }
+
+    @Override
+    public boolean verify(String raw, String stored) {
+        Parsed p = parse(stored);
+        if (p == null) return false;
+        return MessageDigest.isEqual(p.hash, derive(raw, p.salt, p.iterations, p.hash.length * 8));
+    }
+
+    @Override
+    public boolean upToDate(String stored) {
+        Parsed p = parse(stored);
+        return p != null && p.iterations == iterations && p.hash.length * 8 == HASH_BITS;
+    }
+
+    private record Parsed(int iterations, byte[] salt, byte[] hash) { }
+
+    // null for anything that is not a well-formed string of this scheme
+    private static Parsed parse(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) return null;
+        String[] parts = stored.substring(PREFIX.length()).split("\\$", -1);
+        if (parts.length != 3) return null;
+        try {
+            int iterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] hash = Base64.getDecoder().decode(parts[2]);
+            if (iterations < 1 || salt.length == 0 || hash.length == 0) return null;
+            return new Parsed(iterations, salt, hash);
+        } catch (IllegalArgumentException e) {   // NumberFormatException included
+            return null;
+        }
+    }
+
+    private static byte[] derive(String raw, byte[] salt, int iterations, int bits) {
+        PBEKeySpec spec = new PBEKeySpec(raw.toCharArray(), salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -1,30 +1,140 @@
 package util;
 
 import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+/**
+ * Which project days can still be booked: the week starts Monday, and today or any later
+ * day this week is allowed.
+ * - The allowed days are kept as a 7-bit mask (bit 0 = Mon) worked out once per day, so a
+ *   check is a table lookup and a bit test, with no date maths and no allocation
+ * - Each instance reads its own Clock (and the clock's zone), so tests can fix the time
+ * - The shared instances from forZone() use the system clock and are refreshed by a
+ *   midnight tick; every instance also refreshes itself if a check finds the day has
+ *   passed (an injected clock, or a tick that ran late)
+ */
 public final class WeekRule {
-    private WeekRule(){}
+    public static final ZoneId DEFAULT_ZONE = ZoneId.of("Australia/Melbourne");
+
+    private static final String[] NAMES = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+    private static final long[] KEYS = new long[NAMES.length];
+    static {
+        for (int i = 0; i < NAMES.length; i++) KEYS[i] = key(NAMES[i]);
+    }
+
+    private static final ConcurrentHashMap<ZoneId, WeekRule> SHARED = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService TICK = tickThread();
+
+    // the mask and the epoch ms it stops being right at, published together
+    private record Today(int allowed, long until) { }
+
+    private final Clock clock;
+    private volatile Today today;
+
+    public WeekRule(Clock clock) {
+        this.clock = clock;
+        this.today = compute();
+    }
+
+    /** The shared, system-clock rule for zone. */
+    public static WeekRule forZone(ZoneId zone) {
+        return SHARED.computeIfAbsent(zone, z -> {
+            WeekRule rule = new WeekRule(Clock.system(z));
+            rule.scheduleTick();
+            return rule;
+        });
+    }
+
+    /** The rule for the app's zone. */
+    public static WeekRule local() {
+        return forZone(DEFAULT_ZONE);
+    }
 
     // dayStr is "Mon".."Sun"
     public static boolean isAllowedThisWeek(String dayStr, ZoneId zone) {
-        DayOfWeek today = LocalDate.now(zone).getDayOfWeek(); // MON..SUN
-        DayOfWeek target = parse(dayStr);
-        if (target == null) return false;
-
-        // Start Monday, allow today or later this week
-        return target.getValue() >= today.getValue();
-    }
-
-    private static DayOfWeek parse(String d) {
-        return switch (d) {
-            case "Mon" -> DayOfWeek.MONDAY;
-            case "Tue" -> DayOfWeek.TUESDAY;
-            case "Wed" -> DayOfWeek.WEDNESDAY;
-            case "Thu" -> DayOfWeek.THURSDAY;
-            case "Fri" -> DayOfWeek.FRIDAY;
-            case "Sat" -> DayOfWeek.SATURDAY;
-            case "Sun" -> DayOfWeek.SUNDAY;
-            default -> null;
-        };
-    }
-} 
+        return forZone(zone).allows(dayStr);
+    }
+
+    public boolean allows(String dayStr) {
+        return (allowedMask() & bit(dayStr)) != 0;
+    }
+
+    public boolean allows(DayOfWeek day) {
+        return (allowedMask() & (1 << (day.getValue() - 1))) != 0;
+    }
+
+    /**
+     * The items whose day cannot be booked any more, in order; an empty list (nothing
+     * allocated) when the whole cart is fine. The day is checked against one snapshot of
+     * the mask, so a cart is never judged half before and half after midnight.
+     */
+    public <T> List<T> rejected(List<T> items, Function<? super T, String> day) {
+        int allowed = allowedMask();
+        List<T> out = null;
+        for (T item : items) {
+            if ((allowed & bit(day.apply(item))) != 0) continue;
+            if (out == null) out = new ArrayList<>();
+            out.add(item);
+        }
+        return out == null ? List.of() : out;
+    }
+
+    /** Bit d-1 set when DayOfWeek d is allowed today. */
+    public int allowedMask() {
+        Today t = today;
+        if (clock.millis() >= t.until()) {
+            t = compute();
+            today = t;
+        }
+        return t.allowed();
+    }
+
+    // --- helpers ---
+
+    private Today compute() {
+        LocalDate date = LocalDate.now(clock);
+        int fromToday = 0x7F & ~((1 << (date.getDayOfWeek().getValue() - 1)) - 1);
+        // start of day rather than 00:00, for zones whose clocks skip midnight
+        long until = date.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        return new Today(fromToday, until);
+    }
+
+    private void scheduleTick() {
+        long delay = Math.max(0, today.until() - clock.millis()) + 1;
+        TICK.schedule(() -> {
+            today = compute();
+            scheduleTick();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // 0 for anything that is not one of the day names
+    private static int bit(String d) {
+        if (d == null || d.length() != 3) return 0;
+        long k = key(d);
+        for (int i = 0; i < KEYS.length; i++) {
+            if (KEYS[i] == k) return 1 << i;
+        }
+        return 0;
+    }
+
+    // the three chars side by side, so equal keys mean equal names
+    private static long key(String d) {
+        return ((long) d.charAt(0) << 32) | ((long) d.charAt(1) << 16) | d.charAt(2);
+    }
+
+    private static ScheduledExecutorService tickThread() {
+        ScheduledThreadPoolExecutor ex = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "week-rule-tick");
+            t.setDaemon(true);
+            return t;
+        });
+        ex.setRemoveOnCancelPolicy(true);
+        return ex;
+    }
+}
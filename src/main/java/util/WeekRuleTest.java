@@ -3,12 +3,29 @@ package util;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.LocalDate;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Locale;
 
 public class WeekRuleTest {
+    private static final ZoneId MELBOURNE = ZoneId.of("Australia/Melbourne");
+
+    /** A clock the test moves by hand. */
+    private static final class ManualClock extends Clock {
+        Instant now;
+        ManualClock(String localTime) { now = ZonedDateTime.parse(localTime + "+11:00[Australia/Melbourne]").toInstant(); }
+        void advance(Duration d) { now = now.plus(d); }
+        @Override public Instant instant() { return now; }
+        @Override public ZoneId getZone() { return MELBOURNE; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+    }
+
     @Test
     void todayIsAllowed() {
         ZoneId zone = ZoneId.of("Australia/Melbourne");
@@ -21,5 +38,32 @@ public class WeekRuleTest {
     @Test
     void invalidDayReturnsFalse() {
         assertFalse(WeekRule.isAllowedThisWeek("Funday", ZoneId.of("Australia/Melbourne")));
+        assertFalse(new WeekRule(new ManualClock("2025-03-05T12:00")).allows((String) null));
+    }
+
+    @Test
+    void midweekAllowsTodayOnwards() {
+        WeekRule rule = new WeekRule(new ManualClock("2025-03-05T12:00"));   // a Wednesday
+        assertFalse(rule.allows("Mon"));
+        assertFalse(rule.allows("Tue"));
+        for (String d : List.of("Wed", "Thu", "Fri", "Sat", "Sun")) assertTrue(rule.allows(d), d);
+        assertEquals(0b1111100, rule.allowedMask());
+    }
+
+    @Test
+    void theMaskMovesOnAtLocalMidnight() {
+        ManualClock clock = new ManualClock("2025-03-09T23:59:59");   // Sunday night
+        WeekRule rule = new WeekRule(clock);
+        assertFalse(rule.allows("Sat"));
+        clock.advance(Duration.ofSeconds(1));                          // Monday: a new week
+        assertTrue(rule.allows("Mon"));
+        assertTrue(rule.allows("Sat"));
+    }
+
+    @Test
+    void aCartIsCheckedInOneCall() {
+        WeekRule rule = new WeekRule(new ManualClock("2025-03-07T08:00"));   // a Friday
+        assertEquals(List.of(), rule.rejected(List.of("Fri", "Sat", "Sun"), d -> d));
+        assertEquals(List.of("Mon", "Thu", "Someday"), rule.rejected(List.of("Mon", "Fri", "Thu", "Someday", "Sun"), d -> d));
     }
 }